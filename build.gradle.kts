@@ -54,6 +54,14 @@ dependencies {
     implementation("org.jetbrains.kotlinx:kotlinx-serialization-json:1.9.0")
 
     vineflowerDecompilerClasspath("org.vineflower:vineflower:1.10.1")
+
+    testImplementation("net.fabricmc:fabric-loader-junit:${property("deps.fabric_loader")}")
+    testImplementation(platform("org.junit:junit-bom:5.13.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation("org.objenesis:objenesis:3.4")
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 loom {
@@ -87,6 +95,19 @@ java {
     }
 }
 
+val benchmark = providers.gradleProperty("benchmark")
+val runBenchmarks = benchmark.isPresent
+
+tasks.test {
+    useJUnitPlatform {
+        if (runBenchmarks) includeTags("benchmark") else excludeTags("benchmark")
+    }
+    maxHeapSize = "2G"
+    systemProperty("holodisplays.benchmark", benchmark.getOrElse(""))
+    testLogging.showStandardStreams = runBenchmarks
+    outputs.upToDateWhen { !runBenchmarks }
+}
+
 tasks.processResources {
     val props = mapOf(
         "id" to modId,
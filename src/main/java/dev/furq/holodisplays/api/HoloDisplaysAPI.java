@@ -9,6 +9,11 @@ import java.util.function.Consumer;
 /**
  * Java API for the HoloDisplays mod.
  * Allows other mods to create and manage holograms programmatically.
+ * <p>
+ * Methods that modify holograms or displays always run on the server thread. When called from
+ * another thread they block until the server drains its task queue, which normally happens within
+ * one tick, and throw an {@link IllegalStateException} if the server is not running or does not
+ * respond within 10 seconds. Avoid calling them while holding locks the server thread may need.
  */
 public interface HoloDisplaysAPI {
     /**
@@ -270,6 +275,13 @@ public interface HoloDisplaysAPI {
          * @param lineWidth Line width value from 1 to 200
          */
         void lineWidth(int lineWidth);
+
+        /**
+         * Sets how often placeholders in this display are refreshed, overriding the hologram's update rate.
+         *
+         * @param ticks Update frequency in ticks (at least 1)
+         */
+        void updateRate(int ticks);
     }
 
     /**
@@ -534,6 +546,24 @@ public interface HoloDisplaysAPI {
          */
         HologramBuilder viewRange(double range);
 
+        /**
+         * Sets the minimum number of ticks between visibility and condition checks of this hologram for a player.
+         *
+         * @param ticks Check interval in ticks (at least 1)
+         * @return This builder for chaining
+         */
+        HologramBuilder visibilityCheckInterval(int ticks);
+
+        /**
+         * Adds a distance band that lowers the text update rate for players at or beyond the given distance.
+         * Players within the nearest band's distance receive every update.
+         *
+         * @param distance Distance in blocks at which the band starts (greater than 0)
+         * @param divisor Only every n-th text update is sent to players in this band (at least 1)
+         * @return This builder for chaining
+         */
+        HologramBuilder lodBand(double distance, int divisor);
+
         /**
          * Sets the rotation of this hologram.
          *
@@ -6,7 +6,9 @@ import dev.furq.holodisplays.config.HologramConfig;
 import dev.furq.holodisplays.data.DisplayData;
 import dev.furq.holodisplays.data.HologramData;
 import dev.furq.holodisplays.data.display.*;
+import dev.furq.holodisplays.handlers.HologramHandler;
 import dev.furq.holodisplays.handlers.ViewerHandler;
+import dev.furq.holodisplays.utils.ServerThread;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.entity.Display.BillboardConstraints;
 import net.minecraft.world.entity.Pose;
@@ -16,13 +18,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HoloDisplaysAPIImpl.class);
-    private static final Map<String, HologramData> apiHolograms = new HashMap<>();
-    private static final Map<String, DisplayData> apiDisplays = new HashMap<>();
+    private static final Map<String, HologramData> apiHolograms = new ConcurrentHashMap<>();
+    private static final Map<String, DisplayData> apiDisplays = new ConcurrentHashMap<>();
 
     public HoloDisplaysAPIImpl {
         if (modId == null || modId.isEmpty()) {
@@ -74,85 +77,95 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
 
     @Override
     public boolean registerHologram(String id, HologramData hologram) {
-        try {
-            String fullId = toFullId(id);
+        return ServerThread.INSTANCE.call(() -> {
+            try {
+                String fullId = toFullId(id);
 
-            if (apiHolograms.containsKey(fullId)) {
-                throw new IllegalArgumentException("Hologram with ID " + id + " is already registered");
-            }
+                if (apiHolograms.containsKey(fullId)) {
+                    throw new IllegalArgumentException("Hologram with ID " + id + " is already registered");
+                }
 
-            for (HologramData.DisplayLine display : hologram.getDisplays()) {
-                if (!DisplayConfig.INSTANCE.exists(display.getName()) && !apiDisplays.containsKey(display.getName())) {
-                    throw new IllegalArgumentException("Display with ID " + display.getName() + " does not exist");
+                for (HologramData.DisplayLine display : hologram.getDisplays()) {
+                    if (!DisplayConfig.INSTANCE.exists(display.getName()) && !apiDisplays.containsKey(display.getName())) {
+                        throw new IllegalArgumentException("Display with ID " + display.getName() + " does not exist");
+                    }
                 }
-            }
 
-            apiHolograms.put(fullId, hologram);
-            ViewerHandler.INSTANCE.createTracker(fullId);
-            ViewerHandler.INSTANCE.updateHologramIndex(fullId, hologram.getPosition());
+                apiHolograms.put(fullId, hologram);
+                ViewerHandler.INSTANCE.createTracker(fullId);
+                ViewerHandler.INSTANCE.updateHologramIndex(fullId, hologram);
 
-            MinecraftServer server = HoloDisplays.Companion.getSERVER();
-            if (server != null && server.getPlayerList() != null) {
-                server.getPlayerList().getPlayers().forEach(ViewerHandler.INSTANCE::updatePlayerVisibility);
-            }
+                MinecraftServer server = HoloDisplays.Companion.getSERVER();
+                if (server != null && server.getPlayerList() != null) {
+                    server.getPlayerList().getPlayers().forEach(ViewerHandler.INSTANCE::updatePlayerVisibility);
+                }
 
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Failed to register hologram {}: {}", id, e.getMessage());
-            return false;
-        }
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to register hologram {}: {}", id, e.getMessage());
+                return false;
+            }
+        });
     }
 
     @Override
     public boolean unregisterHologram(String id) {
-        try {
-            String fullId = toFullId(id);
+        return ServerThread.INSTANCE.call(() -> {
+            try {
+                String fullId = toFullId(id);
 
-            if (!apiHolograms.containsKey(fullId)) {
-                return false;
-            }
+                if (!apiHolograms.containsKey(fullId)) {
+                    return false;
+                }
 
-            ViewerHandler.INSTANCE.removeHologramFromAllViewers(fullId);
-            ViewerHandler.INSTANCE.removeTracker(fullId);
-            ViewerHandler.INSTANCE.removeHologramIndex(fullId);
-            apiHolograms.remove(fullId);
+                ViewerHandler.INSTANCE.removeHologramFromAllViewers(fullId);
+                ViewerHandler.INSTANCE.removeTracker(fullId);
+                ViewerHandler.INSTANCE.removeHologramIndex(fullId);
+                apiHolograms.remove(fullId);
 
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Failed to unregister hologram {}: {}", id, e.getMessage());
-            return false;
-        }
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to unregister hologram {}: {}", id, e.getMessage());
+                return false;
+            }
+        });
     }
 
     @Override
     public boolean updateHologram(String id, HologramData hologram) {
-        try {
-            String fullId = toFullId(id);
+        return ServerThread.INSTANCE.call(() -> {
+            try {
+                String fullId = toFullId(id);
 
-            if (!apiHolograms.containsKey(fullId)) {
-                return false;
-            }
+                if (!apiHolograms.containsKey(fullId)) {
+                    return false;
+                }
 
-            for (HologramData.DisplayLine display : hologram.getDisplays()) {
-                if (!DisplayConfig.INSTANCE.exists(display.getName()) && !apiDisplays.containsKey(display.getName())) {
-                    throw new IllegalArgumentException("Display with ID " + display.getName() + " does not exist");
+                for (HologramData.DisplayLine display : hologram.getDisplays()) {
+                    if (!DisplayConfig.INSTANCE.exists(display.getName()) && !apiDisplays.containsKey(display.getName())) {
+                        throw new IllegalArgumentException("Display with ID " + display.getName() + " does not exist");
+                    }
                 }
-            }
 
-            apiHolograms.put(fullId, hologram);
-            ViewerHandler.INSTANCE.updateHologramIndex(fullId, hologram.getPosition());
-            ViewerHandler.INSTANCE.respawnForAllObservers(fullId);
+                HologramData previous = apiHolograms.put(fullId, hologram);
+                ViewerHandler.INSTANCE.updateHologramIndex(fullId, hologram);
+                if (previous != null && previous.equals(hologram)) {
+                    ViewerHandler.INSTANCE.updateForAllObservers(fullId);
+                } else if (previous != null && HologramHandler.INSTANCE.isMoveOnly(previous, hologram)) {
+                    ViewerHandler.INSTANCE.moveForAllObservers(fullId, !previous.getPosition().equals(hologram.getPosition()));
+                } else if (previous != null && HologramHandler.INSTANCE.isLineChangeOnly(previous, hologram)) {
+                    ViewerHandler.INSTANCE.applyLineChanges(fullId, previous, hologram);
+                } else {
+                    ViewerHandler.INSTANCE.respawnForAllObservers(fullId);
+                    ViewerHandler.INSTANCE.invalidateNear(fullId);
+                }
 
-            MinecraftServer server = HoloDisplays.Companion.getSERVER();
-            if (server != null && server.getPlayerList() != null) {
-                server.getPlayerList().getPlayers().forEach(ViewerHandler.INSTANCE::updatePlayerVisibility);
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to update hologram {}: {}", id, e.getMessage());
+                return false;
             }
-
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Failed to update hologram {}: {}", id, e.getMessage());
-            return false;
-        }
+        });
     }
 
     @Override
@@ -199,40 +212,44 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
 
     @Override
     public int unregisterAllHolograms() {
-        String prefix = modId + ":";
-        List<String> hologramsToRemove = apiHolograms.keySet().stream()
-                .filter(id -> id.startsWith(prefix))
-                .toList();
-
-        hologramsToRemove.forEach(id -> {
-            ViewerHandler.INSTANCE.removeHologramFromAllViewers(id);
-            ViewerHandler.INSTANCE.removeTracker(id);
-            ViewerHandler.INSTANCE.removeHologramIndex(id);
-            apiHolograms.remove(id);
+        return ServerThread.INSTANCE.call(() -> {
+            String prefix = modId + ":";
+            List<String> hologramsToRemove = apiHolograms.keySet().stream()
+                    .filter(id -> id.startsWith(prefix))
+                    .toList();
+
+            hologramsToRemove.forEach(id -> {
+                ViewerHandler.INSTANCE.removeHologramFromAllViewers(id);
+                ViewerHandler.INSTANCE.removeTracker(id);
+                ViewerHandler.INSTANCE.removeHologramIndex(id);
+                apiHolograms.remove(id);
+            });
+
+            return hologramsToRemove.size();
         });
-
-        return hologramsToRemove.size();
     }
 
     @Override
     public int unregisterAllDisplays() {
-        String prefix = modId + ":";
-        List<String> displaysToRemove = apiDisplays.keySet().stream()
-                .filter(id -> id.startsWith(prefix))
-                .toList();
-
-        displaysToRemove.forEach(id -> {
-            List<String> affectedHolograms = findHologramsUsingDisplay(id);
-            apiDisplays.remove(id);
-
-            for (String hologramId : affectedHolograms) {
-                if (apiHolograms.containsKey(hologramId)) {
-                    ViewerHandler.INSTANCE.respawnForAllObservers(hologramId);
+        return ServerThread.INSTANCE.call(() -> {
+            String prefix = modId + ":";
+            List<String> displaysToRemove = apiDisplays.keySet().stream()
+                    .filter(id -> id.startsWith(prefix))
+                    .toList();
+
+            displaysToRemove.forEach(id -> {
+                List<String> affectedHolograms = findHologramsUsingDisplay(id);
+                apiDisplays.remove(id);
+
+                for (String hologramId : affectedHolograms) {
+                    if (apiHolograms.containsKey(hologramId)) {
+                        ViewerHandler.INSTANCE.respawnForAllObservers(hologramId);
+                    }
                 }
-            }
-        });
+            });
 
-        return displaysToRemove.size();
+            return displaysToRemove.size();
+        });
     }
 
     @Override
@@ -252,58 +269,65 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
 
     @Override
     public boolean updateDisplay(String id, DisplayData display) {
-        try {
-            String fullId = toFullId(id);
+        return ServerThread.INSTANCE.call(() -> {
+            try {
+                String fullId = toFullId(id);
 
-            if (!apiDisplays.containsKey(fullId) || display == null) {
-                return false;
-            }
+                if (!apiDisplays.containsKey(fullId) || display == null) {
+                    return false;
+                }
 
-            DisplayData oldDisplay = apiDisplays.get(fullId);
-            apiDisplays.put(fullId, display);
-            updateAffectedHolograms(fullId, oldDisplay, display);
+                DisplayData oldDisplay = apiDisplays.get(fullId);
+                apiDisplays.put(fullId, display);
+                updateAffectedHolograms(fullId, oldDisplay, display);
 
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Failed to update display {}: {}", id, e.getMessage());
-            return false;
-        }
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to update display {}: {}", id, e.getMessage());
+                return false;
+            }
+        });
     }
 
     @Override
     public boolean unregisterDisplay(String id) {
-        try {
-            String fullId = toFullId(id);
+        return ServerThread.INSTANCE.call(() -> {
+            try {
+                String fullId = toFullId(id);
 
-            if (!apiDisplays.containsKey(fullId)) {
-                return false;
-            }
+                if (!apiDisplays.containsKey(fullId)) {
+                    return false;
+                }
 
-            List<String> affectedHolograms = findHologramsUsingDisplay(fullId);
-            apiDisplays.remove(fullId);
+                List<String> affectedHolograms = findHologramsUsingDisplay(fullId);
+                apiDisplays.remove(fullId);
 
-            for (String hologramId : affectedHolograms) {
-                if (apiHolograms.containsKey(hologramId)) {
-                    ViewerHandler.INSTANCE.respawnForAllObservers(hologramId);
+                for (String hologramId : affectedHolograms) {
+                    if (apiHolograms.containsKey(hologramId)) {
+                        ViewerHandler.INSTANCE.respawnForAllObservers(hologramId);
+                    }
                 }
-            }
 
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Failed to unregister display {}: {}", id, e.getMessage());
-            return false;
-        }
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to unregister display {}: {}", id, e.getMessage());
+                return false;
+            }
+        });
     }
 
     @Override
     public void clearAll() {
-        apiHolograms.keySet().forEach(id -> {
-            ViewerHandler.INSTANCE.removeHologramFromAllViewers(id);
-            ViewerHandler.INSTANCE.removeTracker(id);
-            ViewerHandler.INSTANCE.removeHologramIndex(id);
+        ServerThread.INSTANCE.call(() -> {
+            apiHolograms.keySet().forEach(id -> {
+                ViewerHandler.INSTANCE.removeHologramFromAllViewers(id);
+                ViewerHandler.INSTANCE.removeTracker(id);
+                ViewerHandler.INSTANCE.removeHologramIndex(id);
+            });
+            apiHolograms.clear();
+            apiDisplays.clear();
+            return null;
         });
-        apiHolograms.clear();
-        apiDisplays.clear();
     }
 
     private String toFullId(String id) {
@@ -479,6 +503,14 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
             builder.setLineWidth(lineWidth);
         }
 
+        @Override
+        public void updateRate(int ticks) {
+            if (ticks < 1) {
+                throw new IllegalArgumentException("Update rate must be at least 1 tick");
+            }
+            builder.setUpdateRate(ticks);
+        }
+
         public TextDisplay build() {
             return builder.build();
         }
@@ -572,6 +604,8 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
         private Quaternionf leftRotation = null;
         private Quaternionf rightRotation = null;
         private String conditionalPlaceholder = null;
+        private int visibilityCheckInterval = 1;
+        private final List<HologramData.LodBand> lodBands = new ArrayList<>();
 
         HologramBuilderImpl(String modId) {
             this.modId = modId;
@@ -616,6 +650,28 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
             return this;
         }
 
+        @Override
+        public HologramBuilder visibilityCheckInterval(int ticks) {
+            if (ticks < 1) {
+                throw new IllegalArgumentException("Visibility check interval must be at least 1 tick");
+            }
+            visibilityCheckInterval = ticks;
+            return this;
+        }
+
+        @Override
+        public HologramBuilder lodBand(double distance, int divisor) {
+            if (!(distance > 0)) {
+                throw new IllegalArgumentException("LOD band distance must be positive");
+            }
+            if (divisor < 1) {
+                throw new IllegalArgumentException("LOD band divisor must be at least 1");
+            }
+            lodBands.add(new HologramData.LodBand(distance, divisor));
+            lodBands.sort(Comparator.comparingDouble(HologramData.LodBand::getDistance));
+            return this;
+        }
+
         @Override
         public HologramBuilder rotation(float x, float y, float z) {
             rotation = new Vector3f(x, y, z);
@@ -662,7 +718,9 @@ public record HoloDisplaysAPIImpl(String modId) implements HoloDisplaysAPI {
                     billboardMode,
                     updateRate,
                     viewRange,
-                    conditionalPlaceholder
+                    conditionalPlaceholder,
+                    visibilityCheckInterval,
+                    List.copyOf(lodBands)
             );
         }
     }
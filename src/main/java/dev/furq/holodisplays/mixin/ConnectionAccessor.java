@@ -0,0 +1,12 @@
+package dev.furq.holodisplays.mixin;
+
+import io.netty.channel.Channel;
+import net.minecraft.network.Connection;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(Connection.class)
+public interface ConnectionAccessor {
+    @Accessor("channel")
+    Channel getChannel();
+}
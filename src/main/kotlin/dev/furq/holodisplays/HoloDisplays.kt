@@ -1,13 +1,14 @@
 package dev.furq.holodisplays
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder
 import dev.furq.holodisplays.api.HoloDisplaysAPIInternal
 import dev.furq.holodisplays.commands.MainCommand
 import dev.furq.holodisplays.config.ConfigManager
 import dev.furq.holodisplays.config.HologramConfig
 import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
 import dev.furq.holodisplays.handlers.HologramHandler
+import dev.furq.holodisplays.handlers.PacketBatcher
 import dev.furq.holodisplays.handlers.TickHandler
+import dev.furq.holodisplays.handlers.TickMetrics
 import dev.furq.holodisplays.handlers.ViewerHandler
 import net.fabricmc.api.ModInitializer
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback
@@ -18,9 +19,6 @@ import net.fabricmc.loader.api.FabricLoader
 import net.minecraft.server.MinecraftServer
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
-import java.util.concurrent.CompletableFuture
-import java.util.concurrent.Executor
-import java.util.concurrent.Executors
 
 class HoloDisplays : ModInitializer {
     companion object {
@@ -30,12 +28,6 @@ class HoloDisplays : ModInitializer {
 
         var SERVER: MinecraftServer? = null
             private set
-        var EXECUTOR_HOLODISPLAYS: Executor = Executors.newFixedThreadPool(1,
-            ThreadFactoryBuilder()
-                .setNameFormat("HoloDisplays-Executor-%d")
-                .setDaemon(true)
-                .build()
-        )
     }
 
     override fun onInitialize() {
@@ -48,17 +40,20 @@ class HoloDisplays : ModInitializer {
     private fun handleServerTick(server: MinecraftServer) {
         val players = server.playerList.players
         if (players.isNotEmpty() && (HologramConfig.getHolograms().isNotEmpty() || HoloDisplaysAPIInternal.hasApiHolograms())) {
-            TickHandler.tick(players)
-            players.forEach { player ->
-                ViewerHandler.updatePlayerVisibility(player)
-            }
+            TickHandler.tick()
+            ViewerHandler.tick(players)
         }
     }
 
     private fun registerServerEvents() = safeCall {
         ServerLifecycleEvents.SERVER_STARTING.register { SERVER = it }
         ServerTickEvents.END_SERVER_TICK.register { server ->
-            CompletableFuture.runAsync({ handleServerTick(server) }, EXECUTOR_HOLODISPLAYS)
+            if (!TickMetrics.shouldSkip()) {
+                val start = System.nanoTime()
+                safeCall { handleServerTick(server) }
+                TickMetrics.record(System.nanoTime() - start)
+            }
+            PacketBatcher.flush()
         }
 
         ServerPlayConnectionEvents.JOIN.register { handler, _, _ ->
@@ -66,10 +61,12 @@ class HoloDisplays : ModInitializer {
         }
         ServerPlayConnectionEvents.DISCONNECT.register { handler, _ ->
             ViewerHandler.clearViewers(handler.player)
+            PacketBatcher.discard(handler.player)
         }
 
         ServerLifecycleEvents.SERVER_STOPPING.register {
             HoloDisplaysAPIInternal.clearAll()
+            PacketBatcher.clear()
         }
     }
 
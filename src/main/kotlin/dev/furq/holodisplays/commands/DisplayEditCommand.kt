@@ -67,6 +67,11 @@ object DisplayEditCommand : EditCommand() {
                         builder.buildFuture()
                     }
                     .executes { context -> executeAlignment(context) }))
+            .then(Commands.literal("updateRate")
+                .then(Commands.argument("ticks", IntegerArgumentType.integer(1))
+                    .executes { context -> executeTextUpdateRate(context) })
+                .then(Commands.literal("reset")
+                    .executes { context -> executeResetTextUpdateRate(context) }))
     }
 
     private fun buildTextLineCommands(): ArgumentBuilder<CommandSourceStack, *> {
@@ -230,6 +235,19 @@ object DisplayEditCommand : EditCommand() {
         return 1
     }
 
+    private fun executeTextUpdateRate(context: CommandContext<CommandSourceStack>): Int {
+        val name = StringArgumentType.getString(context, "name")
+        val ticks = IntegerArgumentType.getInteger(context, "ticks")
+        DisplayManager.updateTextUpdateRate(name, ticks, context.source)
+        return 1
+    }
+
+    private fun executeResetTextUpdateRate(context: CommandContext<CommandSourceStack>): Int {
+        val name = StringArgumentType.getString(context, "name")
+        DisplayManager.updateTextUpdateRate(name, null, context.source)
+        return 1
+    }
+
     private fun executeItemId(context: CommandContext<CommandSourceStack>): Int {
         val name = StringArgumentType.getString(context, "name")
         val itemId = StringArgumentType.getString(context, "itemId")
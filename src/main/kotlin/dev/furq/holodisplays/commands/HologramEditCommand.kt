@@ -32,6 +32,7 @@ object HologramEditCommand : EditCommand() {
             .then(buildBillboardCommands())
             .then(buildUpdateRateCommands())
             .then(buildViewRangeCommands())
+            .then(buildVisibilityCheckIntervalCommands())
             .then(buildRotationCommands())
             .then(buildConditionCommands())
         )
@@ -52,6 +53,14 @@ object HologramEditCommand : EditCommand() {
                 .executes { context -> executeResetViewRange(context) })
     }
 
+    private fun buildVisibilityCheckIntervalCommands(): ArgumentBuilder<CommandSourceStack, *> {
+        return Commands.literal("visibilityCheckInterval")
+            .then(Commands.argument("ticks", IntegerArgumentType.integer(1))
+                .executes { context -> executeVisibilityCheckInterval(context) })
+            .then(Commands.literal("reset")
+                .executes { context -> executeResetVisibilityCheckInterval(context) })
+    }
+
     private fun executeUpdateRate(context: CommandContext<CommandSourceStack>): Int {
         val name = StringArgumentType.getString(context, "name")
         val ticks = IntegerArgumentType.getInteger(context, "ticks")
@@ -77,4 +86,17 @@ object HologramEditCommand : EditCommand() {
         HologramManager.updateViewRange(name, null, context.source)
         return 1
     }
+
+    private fun executeVisibilityCheckInterval(context: CommandContext<CommandSourceStack>): Int {
+        val name = StringArgumentType.getString(context, "name")
+        val ticks = IntegerArgumentType.getInteger(context, "ticks")
+        HologramManager.updateVisibilityCheckInterval(name, ticks, context.source)
+        return 1
+    }
+
+    private fun executeResetVisibilityCheckInterval(context: CommandContext<CommandSourceStack>): Int {
+        val name = StringArgumentType.getString(context, "name")
+        HologramManager.updateVisibilityCheckInterval(name, null, context.source)
+        return 1
+    }
 }
\ No newline at end of file
@@ -37,6 +37,7 @@ object MainCommand {
             .then(buildDisplayCommands())
             .then(buildHologramCommands())
             .then(ReloadCommand.register())
+            .then(StatsCommand.register())
     }
 
     private fun buildDisplayCommands(): LiteralArgumentBuilder<CommandSourceStack> {
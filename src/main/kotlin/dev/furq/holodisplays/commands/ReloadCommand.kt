@@ -7,6 +7,7 @@ import dev.furq.holodisplays.handlers.PacketHandler
 import dev.furq.holodisplays.handlers.TickHandler
 import dev.furq.holodisplays.handlers.ViewerHandler
 import dev.furq.holodisplays.managers.FeedbackManager
+import dev.furq.holodisplays.utils.ConditionEvaluator
 import dev.furq.holodisplays.utils.FeedbackType
 //? if >=1.21.11
 import net.minecraft.server.permissions.PermissionLevel
@@ -28,6 +29,7 @@ object ReloadCommand {
         PacketHandler.resetEntityTracking()
         ViewerHandler.clearTrackers()
         TickHandler.init()
+        ConditionEvaluator.clearCache()
         ConfigManager.reload()
         HologramHandler.reinitialize()
         FeedbackManager.send(source, FeedbackType.RELOAD_SUCCESS)
@@ -0,0 +1,42 @@
+package dev.furq.holodisplays.commands
+
+import com.mojang.brigadier.builder.ArgumentBuilder
+import dev.furq.holodisplays.handlers.TickMetrics
+import dev.furq.holodisplays.managers.FeedbackManager
+import dev.furq.holodisplays.utils.FeedbackType
+//? if >=1.21.11
+import net.minecraft.server.permissions.PermissionLevel
+import me.lucko.fabric.api.permissions.v0.Permissions
+import net.minecraft.commands.CommandSourceStack
+import net.minecraft.commands.Commands
+
+object StatsCommand {
+    fun register(): ArgumentBuilder<CommandSourceStack, *> = Commands.literal("stats")
+        //~ if >=1.21.11 '2' -> 'PermissionLevel.GAMEMASTERS'
+        .requires(Permissions.require("holodisplays.admin", PermissionLevel.GAMEMASTERS))
+        .executes { context ->
+            FeedbackManager.send(context.source, FeedbackType.STATS,
+                "avg" to formatMillis(TickMetrics.averageTickNanos),
+                "max" to formatMillis(TickMetrics.maxTickNanos),
+                "ticks" to TickMetrics.processedTicks,
+                "dropped" to TickMetrics.droppedTicks,
+                "queue" to TickMetrics.queueDepth,
+                "peak" to TickMetrics.peakQueueDepth,
+                "hits" to TickMetrics.spawnTemplateHits,
+                "misses" to TickMetrics.spawnTemplateMisses,
+                "spawns" to TickMetrics.pendingSpawns,
+                "deferred" to TickMetrics.deferredUpdates,
+                "frames" to TickMetrics.frameTableFrames,
+                "frameKb" to TickMetrics.frameTableBytes / 1024
+            )
+            1
+        }
+        .then(Commands.literal("reset")
+            .executes { context ->
+                TickMetrics.reset()
+                FeedbackManager.send(context.source, FeedbackType.STATS_RESET)
+                1
+            })
+
+    private fun formatMillis(nanos: Long) = "%.2f".format(nanos / 1_000_000.0)
+}
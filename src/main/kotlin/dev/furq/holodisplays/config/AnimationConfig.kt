@@ -1,15 +1,23 @@
 package dev.furq.holodisplays.config
 
 import dev.furq.holodisplays.data.AnimationData
+import dev.furq.holodisplays.data.display.TextTemplate
 import dev.furq.holodisplays.handlers.ConfigException
 import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
+import dev.furq.holodisplays.handlers.FrameTable
+import eu.pb4.placeholders.api.node.TextNode
 import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.json.Json
 import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
 
 object AnimationConfig : Config {
     override lateinit var configDir: Path
-    private val animations = mutableMapOf<String, AnimationData>()
+    private val animations = ConcurrentHashMap<String, AnimationData>()
+    private val frameNodes = ConcurrentHashMap<String, Array<TextNode>>()
+    private val frameTables = ConcurrentHashMap<String, FrameTable>()
+    var generation = 0
+        private set
 
     @OptIn(ExperimentalSerializationApi::class)
     private val json = Json {
@@ -27,21 +35,39 @@ object AnimationConfig : Config {
 
     override fun reload() {
         animations.clear()
+        frameNodes.clear()
+        frameTables.clear()
         configDir.toFile().listFiles { it.extension == "json" }
             ?.forEach { file ->
                 val jsonContent = file.readText()
                 val animationData = json.decodeFromString<AnimationData>(jsonContent)
                 animations[file.nameWithoutExtension] = animationData
+                compile(file.nameWithoutExtension, animationData)
             }
             ?: throw ConfigException("Failed to list animation config files")
+        generation++
     }
 
+    private fun compile(name: String, animation: AnimationData) {
+        val nodes = Array(animation.frames.size) { TextTemplate.parse(animation.frames[it]) }
+        frameNodes[name] = nodes
+        if (animation.prerender && animation.frames.none { TextTemplate.containsPlaceholders(it) }) {
+            frameTables[name] = FrameTable(nodes)
+        } else {
+            frameTables.remove(name)
+        }
+    }
 
     fun getAnimation(name: String) = animations[name]
+    fun getFrameNodes(name: String): Array<TextNode>? = frameNodes[name]
+    fun getFrameTable(name: String): FrameTable? = frameTables[name]
+    fun getFrameTables() = frameTables.values.toList()
     fun getAnimations() = animations.toMap()
 
     fun saveAnimation(name: String, animation: AnimationData) = safeCall {
         animations[name] = animation
+        compile(name, animation)
+        generation++
         val file = configDir.resolve("$name.json").toFile()
         file.parentFile.mkdirs()
 
@@ -58,5 +84,8 @@ object AnimationConfig : Config {
             throw ConfigException("Failed to delete animation config file for $name")
         }
         animations.remove(name)
+        frameNodes.remove(name)
+        frameTables.remove(name)
+        generation++
     }
 }
\ No newline at end of file
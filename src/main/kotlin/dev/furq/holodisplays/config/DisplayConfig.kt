@@ -11,10 +11,11 @@ import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
 import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.json.*
 import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
 
 object DisplayConfig : Config {
     override lateinit var configDir: Path
-    private val displays = mutableMapOf<String, DisplayData>()
+    private val displays = ConcurrentHashMap<String, DisplayData>()
 
     @OptIn(ExperimentalSerializationApi::class)
     private val json = Json {
@@ -7,10 +7,11 @@ import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
 import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.json.Json
 import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
 
 object HologramConfig : Config {
     override lateinit var configDir: Path
-    private val holograms = mutableMapOf<String, HologramData>()
+    private val holograms = ConcurrentHashMap<String, HologramData>()
 
     @OptIn(ExperimentalSerializationApi::class)
     private val json = Json {
@@ -0,0 +1,36 @@
+package dev.furq.holodisplays.config
+
+import dev.furq.holodisplays.data.SettingsData
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.json.Json
+import java.nio.file.Path
+
+object SettingsConfig : Config {
+    override lateinit var configDir: Path
+    var settings = SettingsData()
+        private set
+
+    @OptIn(ExperimentalSerializationApi::class)
+    private val json = Json {
+        ignoreUnknownKeys = true
+        isLenient = true
+        prettyPrint = true
+        allowTrailingComma = true
+        allowComments = true
+        encodeDefaults = true
+    }
+
+    override fun init(baseDir: Path) {
+        configDir = baseDir
+        super.init(baseDir)
+    }
+
+    override fun reload() {
+        val file = configDir.resolve("settings.json").toFile()
+        settings = if (file.exists()) {
+            json.decodeFromString<SettingsData>(file.readText())
+        } else {
+            SettingsData().also { file.writeText(json.encodeToString(it)) }
+        }
+    }
+}
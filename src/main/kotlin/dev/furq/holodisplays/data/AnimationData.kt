@@ -6,11 +6,13 @@ import kotlinx.serialization.Serializable
 data class AnimationData(
     val frames: List<String>,
     val interval: Int = 20,
+    val prerender: Boolean = false,
 ) {
     class Builder {
         private var frames = mutableListOf<String>()
         var interval: Int = 20
+        var prerender: Boolean = false
 
-        fun build() = AnimationData(frames, interval)
+        fun build() = AnimationData(frames, interval, prerender)
     }
 }
\ No newline at end of file
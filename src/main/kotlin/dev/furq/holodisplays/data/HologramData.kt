@@ -22,6 +22,8 @@ data class HologramData(
     val updateRate: Int = 20,
     val viewRange: Double = 48.0,
     val conditionalPlaceholder: String? = null,
+    val visibilityCheckInterval: Int = 1,
+    val lodBands: List<LodBand> = emptyList(),
 ) {
     @Serializable
     data class DisplayLine(
@@ -29,6 +31,12 @@ data class HologramData(
         val offset: Vector3f = Vector3f(),
     )
 
+    @Serializable
+    data class LodBand(
+        val distance: Double,
+        val divisor: Int,
+    )
+
     @Serializable
     data class Position(
         val world: String = "minecraft:overworld",
@@ -41,6 +49,18 @@ data class HologramData(
 
     val world: String get() = position.world
 
+    fun updateDivisor(distanceSqr: Double): Int {
+        var divisor = 1
+        var reached = -1.0
+        lodBands.forEach { band ->
+            if (band.distance > reached && distanceSqr >= band.distance * band.distance) {
+                reached = band.distance
+                divisor = band.divisor.coerceAtLeast(1)
+            }
+        }
+        return divisor
+    }
+
     class Builder {
         var displays = mutableListOf<DisplayLine>()
         var position: Position = Position(world = "minecraft:overworld", x = 0.0f, y = 0.0f, z = 0.0f)
@@ -52,6 +72,8 @@ data class HologramData(
         var updateRate: Int = 20
         var viewRange: Double = 48.0
         var conditionalPlaceholder: String? = null
+        var visibilityCheckInterval: Int = 1
+        var lodBands = mutableListOf<LodBand>()
 
         fun build() = HologramData(
             displays.toList(),
@@ -63,7 +85,9 @@ data class HologramData(
             billboardMode,
             updateRate,
             viewRange,
-            conditionalPlaceholder
+            conditionalPlaceholder,
+            visibilityCheckInterval,
+            lodBands.toList()
         )
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package dev.furq.holodisplays.data
+
+import kotlinx.serialization.Serializable
+
+@Serializable
+data class SettingsData(
+    val visibility: Visibility = Visibility(),
+    val conditions: Conditions = Conditions(),
+    val spawning: Spawning = Spawning(),
+    val network: Network = Network(),
+) {
+    @Serializable
+    data class Visibility(
+        val moveThreshold: Double = 1.0,
+        val fullSweepInterval: Int = 20,
+    )
+
+    @Serializable
+    data class Conditions(
+        val cacheTicks: Int = 20,
+    )
+
+    @Serializable
+    data class Spawning(
+        val entitiesPerTick: Int = 64,
+        val bytesPerTick: Int = 32768,
+    )
+
+    @Serializable
+    data class Network(
+        val bytesPerTick: Int = 8192,
+    )
+}
@@ -19,6 +19,7 @@ data class TextDisplay(
     val shadow: Boolean? = null,
     val seeThrough: Boolean? = null,
     val alignment: TextAlignment? = null,
+    val updateRate: Int? = null,
     override val rotation: Vector3f? = null,
     override val leftRotation: Quaternionf? = null,
     override val rightRotation: Quaternionf? = null,
@@ -35,6 +36,8 @@ data class TextDisplay(
     private val cachedText by lazy { lines.joinToString("\n") }
     fun getText(): String = cachedText
 
+    val template: TextTemplate by lazy { TextTemplate.compile(cachedText) }
+
     class Builder : BaseDisplay.Builder<TextDisplay> {
         var lines = mutableListOf<String>()
         var lineWidth: Int? = null
@@ -43,6 +46,7 @@ data class TextDisplay(
         var shadow: Boolean? = null
         var seeThrough: Boolean? = null
         var alignment: TextAlignment? = null
+        var updateRate: Int? = null
         override var rotation: Vector3f? = null
         override var leftRotation: Quaternionf? = null
         override var rightRotation: Quaternionf? = null
@@ -52,7 +56,7 @@ data class TextDisplay(
 
         override fun build() = TextDisplay(
             lines.toList(), lineWidth, backgroundColor, textOpacity,
-            shadow, seeThrough, alignment, rotation, leftRotation, rightRotation, scale, billboardMode, conditionalPlaceholder
+            shadow, seeThrough, alignment, updateRate, rotation, leftRotation, rightRotation, scale, billboardMode, conditionalPlaceholder
         )
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package dev.furq.holodisplays.data.display
+
+import dev.furq.holodisplays.config.AnimationConfig
+import dev.furq.holodisplays.data.AnimationData
+import dev.furq.holodisplays.handlers.FrameTable
+import eu.pb4.placeholders.api.PlaceholderContext
+import eu.pb4.placeholders.api.Placeholders
+import eu.pb4.placeholders.api.node.TextNode
+import eu.pb4.placeholders.api.parsers.NodeParser
+import eu.pb4.placeholders.api.parsers.TagParser
+import net.minecraft.network.chat.Component
+//? if >=26.1
+import eu.pb4.placeholders.api.ServerPlaceholderContext
+import net.minecraft.server.level.ServerPlayer
+
+class TextTemplate private constructor(
+    val source: String,
+    private val segments: List<Segment>,
+) {
+    enum class Scope {
+        SERVER, PLAYER
+    }
+
+    private sealed interface Segment {
+        data class Static(val text: String) : Segment
+        data class Animation(val name: String) : Segment
+    }
+
+    private val animations = segments.filterIsInstance<Segment.Animation>().map { it.name }
+    private val staticNode: TextNode? = if (animations.isEmpty()) parse(source) else null
+    private var resolved = arrayOfNulls<AnimationData>(0)
+    private var singleFrames: Array<TextNode>? = null
+    private var frameTable: FrameTable? = null
+    private var frameNodes = arrayOfNulls<TextNode>(0)
+    private var frames = arrayOfNulls<FrameTable.Frame>(0)
+    private var generation = -1
+    private var intervals = IntArray(0)
+    private var placeholders = false
+    private var scope = Scope.SERVER
+
+    val isAnimated: Boolean get() = animations.isNotEmpty()
+
+    fun animationIntervals(): IntArray {
+        refresh()
+        return intervals
+    }
+
+    fun hasPlaceholders(): Boolean {
+        refresh()
+        return placeholders
+    }
+
+    fun scope(): Scope {
+        refresh()
+        return scope
+    }
+
+    fun node(tick: Int): TextNode {
+        refresh()
+        return node(tick, frameKey(tick))
+    }
+
+    private fun node(tick: Int, key: Int): TextNode {
+        staticNode?.let { return it }
+        singleFrames?.let { frames -> return frames[frameIndex(resolved[0]!!, tick)] }
+        if (key == UNCACHED) return parse(render(tick))
+        return frameNodes[key] ?: parse(render(tick)).also { frameNodes[key] = it }
+    }
+
+    fun frame(tick: Int, player: ServerPlayer): FrameTable.Frame? {
+        refresh()
+        return frame(tick, frameKey(tick), player)
+    }
+
+    private fun frame(tick: Int, key: Int, player: ServerPlayer): FrameTable.Frame? {
+        frameTable?.let { table -> return table.frame(frameIndex(resolved[0]!!, tick), player) }
+        if (placeholders || key == UNCACHED) return null
+        return frames[key] ?: FrameTable.Frame.of(resolve(node(tick, key), player)).also { frames[key] = it }
+    }
+
+    fun resolve(tick: Int, player: ServerPlayer): Component {
+        refresh()
+        val key = frameKey(tick)
+        frame(tick, key, player)?.let { return it.component }
+        return resolve(node(tick, key), player)
+    }
+
+    private fun frameKey(tick: Int): Int {
+        if (frameNodes.isEmpty()) return UNCACHED
+
+        var key = 0
+        var radix = 1
+        resolved.forEach { animation ->
+            if (animation == null) return@forEach
+            key += frameIndex(animation, tick) * radix
+            radix *= animation.frames.size
+        }
+        return key
+    }
+
+    private fun render(tick: Int): String = buildString {
+        segments.forEach { segment ->
+            when (segment) {
+                is Segment.Static -> append(segment.text)
+                is Segment.Animation -> {
+                    val animation = AnimationConfig.getAnimation(segment.name)
+                    if (animation == null || animation.frames.isEmpty()) {
+                        append("<red>Invalid animation: ${segment.name}</red>")
+                    } else {
+                        append(animation.frames[frameIndex(animation, tick)])
+                    }
+                }
+            }
+        }
+    }
+
+    private fun refresh() {
+        if (generation == AnimationConfig.generation) return
+        generation = AnimationConfig.generation
+
+        resolved = Array(animations.size) { i -> AnimationConfig.getAnimation(animations[i])?.takeIf { it.frames.isNotEmpty() } }
+        singleFrames = if (segments.size == 1 && resolved.size == 1 && resolved[0] != null) {
+            AnimationConfig.getFrameNodes(animations[0])?.takeIf { it.size == resolved[0]!!.frames.size }
+        } else null
+        frameTable = if (singleFrames != null) {
+            AnimationConfig.getFrameTable(animations[0])?.takeIf { it.frameCount == singleFrames!!.size }
+        } else null
+
+        val combinations = resolved.fold(1L) { total, animation -> total * (animation?.frames?.size ?: 1) }
+        val tableSize = if (combinations <= MAX_CACHED_FRAMES) combinations.toInt() else 0
+        frameNodes = arrayOfNulls(tableSize)
+        frames = arrayOfNulls(tableSize)
+
+        val animationData = resolved.filterNotNull()
+        intervals = animationData.map { it.interval.coerceAtLeast(1) }.distinct().toIntArray()
+
+        val namespaces = (sequenceOf(source) + animationData.asSequence().flatMap { it.frames })
+            .flatMap { text -> placeholderRegex.findAll(text).map { it.groupValues[1] } }
+            .toSet()
+        placeholders = namespaces.isNotEmpty()
+        scope = if (namespaces.all { it in SERVER_NAMESPACES }) Scope.SERVER else Scope.PLAYER
+    }
+
+    companion object {
+        private const val MAX_CACHED_FRAMES = 1024
+        private const val UNCACHED = -1
+        private val SERVER_NAMESPACES = setOf("server")
+        private val animationRegex = "<animation:([^>]+)>".toRegex()
+        private val placeholderRegex = "%([^%:]+):([^%]+)%".toRegex()
+        private val placeholderParser by lazy {
+            //~ if >=26.1 'DEFAULT_PLACEHOLDER_PARSER' -> 'SERVER_PLACEHOLDER_PARSER'
+            NodeParser.merge(TagParser.DEFAULT, Placeholders.SERVER_PLACEHOLDER_PARSER)
+        }
+
+        fun compile(source: String): TextTemplate {
+            val segments = mutableListOf<Segment>()
+            var last = 0
+            animationRegex.findAll(source).forEach { match ->
+                if (match.range.first > last) segments.add(Segment.Static(source.substring(last, match.range.first)))
+                segments.add(Segment.Animation(match.groupValues[1]))
+                last = match.range.last + 1
+            }
+            if (last < source.length) segments.add(Segment.Static(source.substring(last)))
+            return TextTemplate(source, segments)
+        }
+
+        fun parse(text: String): TextNode = placeholderParser.parseNode(text)
+
+        fun containsPlaceholders(text: String): Boolean = placeholderRegex.containsMatchIn(text)
+
+        fun resolve(node: TextNode, player: ServerPlayer): Component =
+            //~ if >=26.1 'toText(PlaceholderContext.of(player))' -> 'toComponent(ServerPlaceholderContext.of(player))'
+            node.toComponent(ServerPlaceholderContext.of(player))
+
+        private fun frameIndex(animation: AnimationData, tick: Int): Int =
+            (tick / animation.interval.coerceAtLeast(1)) % animation.frames.size
+    }
+}
@@ -24,6 +24,7 @@ object DisplayHandler {
         data class TextShadow(val value: Boolean?) : DisplayProperty()
         data class TextSeeThrough(val value: Boolean?) : DisplayProperty()
         data class TextAlignment(val value: TextDisplay.TextAlignment?) : DisplayProperty()
+        data class TextUpdateRate(val value: Int?) : DisplayProperty()
         data class ItemId(val value: String) : DisplayProperty()
         data class ItemDisplayType(val value: String) : DisplayProperty()
         data class ItemCustomModelData(val value: Int?) : DisplayProperty()
@@ -90,6 +91,7 @@ object DisplayHandler {
         is DisplayProperty.TextShadow -> display.copy(shadow = property.value)
         is DisplayProperty.TextSeeThrough -> display.copy(seeThrough = property.value)
         is DisplayProperty.TextAlignment -> display.copy(alignment = property.value)
+        is DisplayProperty.TextUpdateRate -> display.copy(updateRate = property.value)
         is DisplayProperty.ConditionalPlaceholder -> display.copy(conditionalPlaceholder = property.value)
         else -> null
     }
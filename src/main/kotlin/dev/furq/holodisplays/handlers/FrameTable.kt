@@ -0,0 +1,45 @@
+package dev.furq.holodisplays.handlers
+
+import dev.furq.holodisplays.data.display.TextTemplate
+import eu.pb4.placeholders.api.node.TextNode
+import net.minecraft.network.chat.Component
+import net.minecraft.network.syncher.SynchedEntityData
+import net.minecraft.server.level.ServerPlayer
+
+class FrameTable(private val nodes: Array<TextNode>) {
+    private val frames = arrayOfNulls<Frame>(nodes.size)
+
+    class Frame(
+        val component: Component,
+        val entries: List<SynchedEntityData.DataValue<*>>,
+        val size: Int,
+    ) {
+        companion object {
+            fun of(component: Component): Frame {
+                val entries = PacketHandler.textMetadata(component)
+                return Frame(component, entries, PacketHandler.measureTextSize(entries))
+            }
+        }
+    }
+
+    val frameCount: Int get() = nodes.size
+    var renderedFrames = 0
+        private set
+    var estimatedBytes = 0L
+        private set
+
+    fun frame(index: Int, player: ServerPlayer): Frame = frames[index] ?: render(index, player)
+
+    private fun render(index: Int, player: ServerPlayer): Frame {
+        return Frame.of(TextTemplate.resolve(nodes[index], player)).also {
+            frames[index] = it
+            renderedFrames++
+            estimatedBytes += FRAME_OVERHEAD + it.size.toLong() * HEAP_BYTES_PER_ENCODED_BYTE
+        }
+    }
+
+    companion object {
+        private const val FRAME_OVERHEAD = 128
+        private const val HEAP_BYTES_PER_ENCODED_BYTE = 6
+    }
+}
@@ -20,6 +20,7 @@ object HologramHandler {
         data class BillboardMode(val mode: BillboardConstraints?) : HologramProperty()
         data class ViewRange(val value: Double?) : HologramProperty()
         data class UpdateRate(val value: Int?) : HologramProperty()
+        data class VisibilityCheckInterval(val value: Int?) : HologramProperty()
         data class Position(val position: HologramData.Position) : HologramProperty()
         data class Rotation(val value: Vector3f?) : HologramProperty()
         data class LineOffset(val index: Int, val offset: Vector3f) : HologramProperty()
@@ -31,14 +32,14 @@ object HologramHandler {
     fun init() {
         HologramConfig.getHolograms().forEach { (name, data) ->
             ViewerHandler.createTracker(name)
-            ViewerHandler.updateHologramIndex(name, data.position)
+            ViewerHandler.updateHologramIndex(name, data)
         }
     }
 
     fun reinitialize() {
         HologramConfig.getHolograms().forEach { (name, data) ->
             ViewerHandler.createTracker(name)
-            ViewerHandler.updateHologramIndex(name, data.position)
+            ViewerHandler.updateHologramIndex(name, data)
             ViewerHandler.respawnForAllObservers(name)
         }
     }
@@ -47,7 +48,7 @@ object HologramHandler {
         if (HologramConfig.exists(name)) throw HologramException("Hologram with name $name already exists")
         HologramConfig.saveHologram(name, data)
         ViewerHandler.createTracker(name)
-        ViewerHandler.updateHologramIndex(name, data.position)
+        ViewerHandler.updateHologramIndex(name, data)
         showHologramToPlayers(name, data)
     }
 
@@ -66,14 +67,28 @@ object HologramHandler {
 
         val needsRespawn = when (property) {
             is HologramProperty.Position -> {
-                ViewerHandler.updateHologramIndex(name, property.position)
+                ViewerHandler.updateHologramIndex(name, updatedHologram)
+                if (hologram.world == updatedHologram.world) {
+                    ViewerHandler.moveForAllObservers(name)
+                    return@safeCall
+                }
                 true
             }
-            is HologramProperty.Rotation,
-            is HologramProperty.ConditionalPlaceholder,
+            is HologramProperty.ViewRange -> {
+                ViewerHandler.updateHologramIndex(name, updatedHologram)
+                false
+            }
+            is HologramProperty.Rotation -> {
+                ViewerHandler.moveForAllObservers(name, positionChanged = false)
+                return@safeCall
+            }
             is HologramProperty.LineOffset,
             is HologramProperty.AddLine,
-            is HologramProperty.RemoveLine -> true
+            is HologramProperty.RemoveLine -> {
+                ViewerHandler.applyLineChanges(name, hologram, updatedHologram)
+                return@safeCall
+            }
+            is HologramProperty.ConditionalPlaceholder -> true
 
             else -> false
         }
@@ -85,11 +100,19 @@ object HologramHandler {
         }
     }
 
+    fun isMoveOnly(previous: HologramData, updated: HologramData): Boolean =
+        previous.world == updated.world && (previous.position != updated.position || previous.rotation != updated.rotation) &&
+                previous.copy(position = updated.position, rotation = updated.rotation) == updated
+
+    fun isLineChangeOnly(previous: HologramData, updated: HologramData): Boolean =
+        previous.displays != updated.displays && previous.copy(displays = updated.displays) == updated
+
     private fun updateHologramData(hologram: HologramData, property: HologramProperty): HologramData = when (property) {
         is HologramProperty.Scale -> hologram.copy(scale = property.value ?: Vector3f(1f))
         is HologramProperty.BillboardMode -> hologram.copy(billboardMode = property.mode ?: BillboardConstraints.CENTER)
         is HologramProperty.ViewRange -> hologram.copy(viewRange = property.value ?: 48.0)
         is HologramProperty.UpdateRate -> hologram.copy(updateRate = property.value ?: 20)
+        is HologramProperty.VisibilityCheckInterval -> hologram.copy(visibilityCheckInterval = property.value ?: 1)
         is HologramProperty.ConditionalPlaceholder -> hologram.copy(conditionalPlaceholder = property.value)
         is HologramProperty.Position -> hologram.copy(position = property.position)
         is HologramProperty.Rotation -> hologram.copy(rotation = property.value ?: Vector3f())
@@ -0,0 +1,147 @@
+package dev.furq.holodisplays.handlers
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap
+import java.util.*
+
+class ObserverIndex {
+    private val holograms = Handles<String>()
+    private val players = Handles<UUID>()
+    private val viewersByHologram = Int2ObjectOpenHashMap<IntOpenHashSet>()
+    private val hologramsByPlayer = Int2ObjectOpenHashMap<IntOpenHashSet>()
+
+    private class Handles<K : Any> {
+        private val handles = Object2IntOpenHashMap<K>().apply { defaultReturnValue(NO_HANDLE) }
+        private val keys = Int2ObjectOpenHashMap<K>()
+        private val free = IntArrayList()
+        private var next = 0
+
+        fun get(key: K): Int = handles.getInt(key)
+        fun key(handle: Int): K = keys.get(handle)
+
+        fun getOrCreate(key: K): Int {
+            val existing = handles.getInt(key)
+            if (existing != NO_HANDLE) return existing
+            val handle = if (free.isEmpty) next++ else free.removeInt(free.size - 1)
+            handles.put(key, handle)
+            keys.put(handle, key)
+            return handle
+        }
+
+        fun release(key: K): Int {
+            val handle = handles.removeInt(key)
+            if (handle != NO_HANDLE) {
+                keys.remove(handle)
+                free.add(handle)
+            }
+            return handle
+        }
+
+        fun clear() {
+            handles.clear()
+            keys.clear()
+            free.clear()
+            next = 0
+        }
+    }
+
+    private fun handleSet(map: Int2ObjectOpenHashMap<IntOpenHashSet>, handle: Int): IntOpenHashSet =
+        map.get(handle) ?: IntOpenHashSet().also { map.put(handle, it) }
+
+    fun track(name: String) {
+        handleSet(viewersByHologram, holograms.getOrCreate(name))
+    }
+
+    fun untrack(name: String) {
+        val handle = holograms.release(name)
+        if (handle == NO_HANDLE) return
+        val viewers = viewersByHologram.remove(handle)?.iterator() ?: return
+        while (viewers.hasNext()) hologramsByPlayer.get(viewers.nextInt())?.remove(handle)
+    }
+
+    fun add(player: UUID, name: String): Boolean {
+        val hologram = holograms.getOrCreate(name)
+        val playerHandle = players.getOrCreate(player)
+        if (!handleSet(viewersByHologram, hologram).add(playerHandle)) return false
+        handleSet(hologramsByPlayer, playerHandle).add(hologram)
+        return true
+    }
+
+    fun remove(player: UUID, name: String): Boolean {
+        val hologram = holograms.get(name)
+        val playerHandle = players.get(player)
+        if (hologram == NO_HANDLE || playerHandle == NO_HANDLE) return false
+        if (viewersByHologram.get(hologram)?.remove(playerHandle) != true) return false
+        hologramsByPlayer.get(playerHandle)?.remove(hologram)
+        return true
+    }
+
+    fun contains(player: UUID, name: String): Boolean {
+        val hologram = holograms.get(name)
+        val playerHandle = players.get(player)
+        if (hologram == NO_HANDLE || playerHandle == NO_HANDLE) return false
+        return hologramsByPlayer.get(playerHandle)?.contains(hologram) == true
+    }
+
+    fun viewerCount(name: String): Int {
+        val hologram = holograms.get(name)
+        if (hologram == NO_HANDLE) return 0
+        return viewersByHologram.get(hologram)?.size ?: 0
+    }
+
+    fun viewers(name: String): List<UUID> {
+        val hologram = holograms.get(name)
+        if (hologram == NO_HANDLE) return emptyList()
+        val viewers = viewersByHologram.get(hologram) ?: return emptyList()
+        return viewers.map { players.key(it) }
+    }
+
+    fun forEachViewer(name: String, action: (UUID) -> Unit) {
+        val hologram = holograms.get(name)
+        if (hologram == NO_HANDLE) return
+        val viewers = viewersByHologram.get(hologram)?.iterator() ?: return
+        while (viewers.hasNext()) action(players.key(viewers.nextInt()))
+    }
+
+    fun <T : Any> firstViewer(name: String, resolve: (UUID) -> T?): T? {
+        val hologram = holograms.get(name)
+        if (hologram == NO_HANDLE) return null
+        val viewers = viewersByHologram.get(hologram)?.iterator() ?: return null
+        while (viewers.hasNext()) resolve(players.key(viewers.nextInt()))?.let { return it }
+        return null
+    }
+
+    fun viewedBy(player: UUID): List<String> {
+        val playerHandle = players.get(player)
+        if (playerHandle == NO_HANDLE) return emptyList()
+        val viewed = hologramsByPlayer.get(playerHandle) ?: return emptyList()
+        return viewed.map { holograms.key(it) }
+    }
+
+    fun forEachViewed(player: UUID, action: (String) -> Unit) {
+        val playerHandle = players.get(player)
+        if (playerHandle == NO_HANDLE) return
+        val viewed = hologramsByPlayer.get(playerHandle)?.iterator() ?: return
+        while (viewed.hasNext()) action(holograms.key(viewed.nextInt()))
+    }
+
+    fun removePlayer(player: UUID) {
+        val handle = players.release(player)
+        if (handle == NO_HANDLE) return
+        val viewed = hologramsByPlayer.remove(handle)?.iterator() ?: return
+        while (viewed.hasNext()) viewersByHologram.get(viewed.nextInt())?.remove(handle)
+    }
+
+    fun clear() {
+        holograms.clear()
+        players.clear()
+        viewersByHologram.clear()
+        hologramsByPlayer.clear()
+    }
+
+    companion object {
+        private const val NO_HANDLE = -1
+    }
+}
@@ -0,0 +1,106 @@
+package dev.furq.holodisplays.handlers
+
+import dev.furq.holodisplays.config.SettingsConfig
+import dev.furq.holodisplays.mixin.ConnectionAccessor
+import dev.furq.holodisplays.mixin.ServerCommonPacketListenerImplAccessor
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap
+import net.minecraft.network.protocol.BundlerInfo
+import net.minecraft.network.protocol.Packet
+import net.minecraft.network.protocol.game.ClientGamePacketListener
+import net.minecraft.network.protocol.game.ClientboundBundlePacket
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket
+import net.minecraft.server.level.ServerPlayer
+
+object PacketBatcher {
+    private val pending = LinkedHashMap<ServerPlayer, Outbox>()
+
+    private class Outbox {
+        val packets = ArrayList<Packet<in ClientGamePacketListener>>()
+        val updates = Int2ObjectLinkedOpenHashMap<ClientboundSetEntityDataPacket>()
+        val updateSizes = Int2IntOpenHashMap()
+
+        fun isEmpty() = packets.isEmpty() && updates.isEmpty()
+
+        fun takeUpdate(entityId: Int): ClientboundSetEntityDataPacket? {
+            updateSizes.remove(entityId)
+            return updates.remove(entityId)
+        }
+    }
+
+    fun send(player: ServerPlayer, packet: Packet<*>) {
+        val outbox = pending.getOrPut(player) { Outbox() }
+        when (packet) {
+            is ClientboundRemoveEntitiesPacket -> {
+                val ids = packet.entityIds
+                for (i in 0 until ids.size) outbox.takeUpdate(ids.getInt(i))
+            }
+            is ClientboundSetEntityDataPacket -> outbox.takeUpdate(packet.id())?.let { outbox.packets.add(it) }
+        }
+        @Suppress("UNCHECKED_CAST")
+        outbox.packets.add(packet as Packet<in ClientGamePacketListener>)
+    }
+
+    fun sendUpdate(player: ServerPlayer, packet: ClientboundSetEntityDataPacket, size: Int) {
+        val outbox = pending.getOrPut(player) { Outbox() }
+        outbox.updates.put(packet.id(), packet)
+        outbox.updateSizes.put(packet.id(), size)
+    }
+
+    fun getDeferredUpdateCount(): Int = pending.values.sumOf { it.updates.size }
+
+    fun discard(player: ServerPlayer) {
+        pending.remove(player)
+    }
+
+    fun clear() = pending.clear()
+
+    fun flush() {
+        if (pending.isEmpty()) return
+        val budget = SettingsConfig.settings.network.bytesPerTick
+        val iterator = pending.entries.iterator()
+        while (iterator.hasNext()) {
+            val (player, outbox) = iterator.next()
+            if (player.hasDisconnected()) {
+                iterator.remove()
+                continue
+            }
+
+            if (!outbox.updates.isEmpty() && isWritable(player)) drainUpdates(outbox, budget)
+            sendPackets(player, outbox.packets)
+            outbox.packets.clear()
+            if (outbox.isEmpty()) iterator.remove()
+        }
+    }
+
+    private fun drainUpdates(outbox: Outbox, budget: Int) {
+        var spent = 0
+        val updates = outbox.updates.int2ObjectEntrySet().fastIterator()
+        while (updates.hasNext()) {
+            val update = updates.next()
+            val size = outbox.updateSizes.get(update.intKey)
+            if (budget > 0 && spent > 0 && spent + size > budget) break
+
+            spent += size
+            outbox.packets.add(update.value)
+            outbox.updateSizes.remove(update.intKey)
+            updates.remove()
+        }
+    }
+
+    private fun sendPackets(player: ServerPlayer, packets: List<Packet<in ClientGamePacketListener>>) {
+        when (packets.size) {
+            0 -> return
+            1 -> player.connection.send(packets[0])
+            else -> packets.chunked(BundlerInfo.BUNDLE_SIZE_LIMIT).forEach { chunk ->
+                player.connection.send(ClientboundBundlePacket(chunk))
+            }
+        }
+    }
+
+    private fun isWritable(player: ServerPlayer): Boolean {
+        val connection = (player.connection as ServerCommonPacketListenerImplAccessor).connection
+        return (connection as ConnectionAccessor).channel?.isWritable ?: true
+    }
+}
@@ -1,20 +1,32 @@
 package dev.furq.holodisplays.handlers
 
 import dev.furq.holodisplays.api.HoloDisplaysAPIInternal
+import dev.furq.holodisplays.config.DisplayConfig
 import dev.furq.holodisplays.data.DisplayData
 import dev.furq.holodisplays.data.HologramData
 import dev.furq.holodisplays.data.display.*
 import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
 import dev.furq.holodisplays.mixin.*
+import io.netty.buffer.Unpooled
+import it.unimi.dsi.fastutil.ints.Int2IntMap
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
 import it.unimi.dsi.fastutil.ints.IntArrayList
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap
+import net.minecraft.core.RegistryAccess
 import net.minecraft.core.component.DataComponents
+import net.minecraft.core.registries.BuiltInRegistries
+import net.minecraft.network.RegistryFriendlyByteBuf
 import net.minecraft.network.chat.Component
 import net.minecraft.network.protocol.Packet
 import net.minecraft.network.protocol.game.ClientboundAddEntityPacket
 import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket
 import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket
 import net.minecraft.network.protocol.game.ClientboundUpdateAttributesPacket
+//? if >=1.21.2 {
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket
+import net.minecraft.world.entity.PositionMoveRotation
+//?}
 import net.minecraft.network.syncher.EntityDataAccessor
 import net.minecraft.network.syncher.SynchedEntityData
 import net.minecraft.server.level.ServerPlayer
@@ -33,10 +45,30 @@ import kotlin.experimental.or
 
 object PacketHandler {
     private const val INITIAL_ENTITY_ID = -1
+    private const val NO_ENTITY = 0
+    private const val TEXT_UPDATE_OVERHEAD = 16
+    private const val SPAWN_PACKET_SIZE = 64
     private var nextEntityId = INITIAL_ENTITY_ID
-    private val recycledIds = mutableSetOf<Int>()
-    private val entityIds = mutableMapOf<UUID, Object2IntOpenHashMap<String>>()
+    private val recycledIds = IntArrayList()
+    private val entityIds = mutableMapOf<UUID, Object2ObjectOpenHashMap<String, Int2IntOpenHashMap>>()
+    private val sentMetadata = Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<Any>>()
+    private val compiledLines = Object2ObjectOpenHashMap<String, Int2ObjectOpenHashMap<CompiledLine>>()
     private val hexColorPattern = "^[0-9A-Fa-f]{2}[0-9A-Fa-f]{6}$".toRegex()
+    private val sizeBuffer by lazy {
+        RegistryFriendlyByteBuf(Unpooled.buffer(), RegistryAccess.fromRegistryOfRegistries(BuiltInRegistries.REGISTRY))
+    }
+
+    private class CompiledLine(
+        val hologram: HologramData,
+        val displayData: DisplayData,
+        val line: HologramData.DisplayLine,
+        val entries: List<SynchedEntityData.DataValue<*>>,
+    ) {
+        val spawn by lazy { createSpawnTemplate(hologram, line, displayData.type) }
+        val scale by lazy { createScaleAttribute(displayData.type) }
+        val sharedSize by lazy { SPAWN_PACKET_SIZE + measureTextSize(entries) }
+        var spawnSize = 0
+    }
 
     private val itemDisplayTypeMap = mapOf(
         "none" to 0.toByte(),
@@ -50,7 +82,7 @@ object PacketHandler {
         "fixed" to 8.toByte()
     )
 
-    private fun getNextEntityId(): Int = recycledIds.firstOrNull()?.also(recycledIds::remove) ?: --nextEntityId
+    private fun getNextEntityId(): Int = if (recycledIds.isEmpty) --nextEntityId else recycledIds.removeInt(recycledIds.size - 1)
 
     private fun <T : Any> createEntry(trackedData: EntityDataAccessor<T>, value: T): SynchedEntityData.DataValue<*> =
         SynchedEntityData.DataValue.create(trackedData, value)
@@ -59,10 +91,31 @@ object PacketHandler {
         if (display is BlockDisplay && !isFromApi) add(-0.5f * scale.x, -0.5f * scale.y, -0.5f * scale.z)
     }
 
-    private fun getCompositeKey(hologramName: String, displayRef: String): String = "$hologramName/$displayRef"
+    private fun getEntityId(player: ServerPlayer, hologramName: String, lineIndex: Int): Int {
+        val lines = entityIds[player.uuid]?.get(hologramName) ?: return NO_ENTITY
+        return lines.get(lineIndex)
+    }
+
+    private fun recordMetadata(entityId: Int, entries: List<SynchedEntityData.DataValue<*>>) {
+        val sent = sentMetadata.get(entityId) ?: Int2ObjectOpenHashMap<Any>().also { sentMetadata.put(entityId, it) }
+        entries.forEach { sent.put(it.id(), it.value()) }
+    }
+
+    private fun changedMetadata(entityId: Int, entries: List<SynchedEntityData.DataValue<*>>): List<SynchedEntityData.DataValue<*>> {
+        val sent = sentMetadata.get(entityId) ?: return entries
+        return entries.filterNot { isSameValue(sent.get(it.id()), it.value()) }
+    }
+
+    private fun isSameValue(previous: Any?, current: Any?): Boolean = when {
+        previous === current -> true
+        previous is ItemStack && current is ItemStack -> ItemStack.matches(previous, current)
+        else -> previous == current
+    }
 
     fun resetEntityTracking() {
         entityIds.clear()
+        sentMetadata.clear()
+        compiledLines.clear()
         nextEntityId = INITIAL_ENTITY_ID
         recycledIds.clear()
     }
@@ -72,47 +125,38 @@ object PacketHandler {
         hologramName: String,
         line: HologramData.DisplayLine,
         displayData: DisplayData,
-        position: Vector3f,
         lineIndex: Int,
         hologram: HologramData,
-        packetConsumer: (Packet<*>) -> Unit = { player.connection.send(it) }
+        packetConsumer: (Packet<*>) -> Unit = { PacketBatcher.send(player, it) }
     ) = safeCall {
         val entityId = getNextEntityId()
-        val displayRef = "${line.name}:$lineIndex"
-        val compositeKey = getCompositeKey(hologramName, displayRef)
 
-        entityIds.getOrPut(player.uuid) { Object2IntOpenHashMap() }
-            .put(compositeKey, entityId)
+        val lines = entityIds.getOrPut(player.uuid) { Object2ObjectOpenHashMap() }
+            .getOrPut(hologramName) { Int2IntOpenHashMap().apply { defaultReturnValue(NO_ENTITY) } }
+        lines.put(lineIndex, entityId)
 
-        val display = displayData.type
-        if (display is EntityDisplay) {
-            val translation = line.offset
-            val effectivePos = position.add(translation)
-            val rotation = display.rotation ?: hologram.rotation
+        val compiled = compiledLine(hologramName, lineIndex, displayData, hologram, line, trackSpawn = true)
+        packetConsumer(compiled.spawn(entityId))
 
-            packetConsumer(createSpawnPacket(entityId, effectivePos, display, rotation.x, rotation.y, rotation.y.toDouble()))
-        } else {
-            packetConsumer(createSpawnPacket(entityId, position, displayData.type))
+        val entries = withText(compiled.entries, displayData, player)
+        packetConsumer(ClientboundSetEntityDataPacket(entityId, entries))
+        recordMetadata(entityId, entries)
+        if (compiled.spawnSize == 0) compiled.spawnSize = SPAWN_PACKET_SIZE + measureTextSize(entries)
+
+        compiled.scale?.let { scale ->
+            packetConsumer(ClientboundUpdateAttributesPacket(entityId, listOf(scale)))
         }
-        sendDisplayMetadata(player, entityId, displayData, hologram, line, packetConsumer)
     }
 
     fun destroyDisplayEntity(player: ServerPlayer, hologramName: String) {
+        TickHandler.invalidate(player, hologramName)
         val playerEntities = entityIds[player.uuid] ?: return
-        val prefix = "$hologramName/"
-        val iterator = playerEntities.object2IntEntrySet().iterator()
-        val idsToDestroy = IntArrayList()
-
-        while (iterator.hasNext()) {
-            val entry = iterator.next()
-            if (entry.key.startsWith(prefix)) {
-                idsToDestroy.add(entry.intValue)
-                iterator.remove()
-            }
-        }
+        val lines = playerEntities.remove(hologramName)
 
-        if (!idsToDestroy.isEmpty) {
-            player.connection.send(ClientboundRemoveEntitiesPacket(idsToDestroy))
+        if (lines != null && !lines.isEmpty()) {
+            val idsToDestroy = IntArrayList(lines.values)
+            PacketBatcher.send(player, ClientboundRemoveEntitiesPacket(idsToDestroy))
+            for (i in 0 until idsToDestroy.size) sentMetadata.remove(idsToDestroy.getInt(i))
             recycledIds.addAll(idsToDestroy)
         }
 
@@ -121,14 +165,81 @@ object PacketHandler {
         }
     }
 
-    private fun createSpawnPacket(
-        entityId: Int,
+    fun hasEntity(player: ServerPlayer, hologramName: String, lineIndex: Int): Boolean =
+        getEntityId(player, hologramName, lineIndex) != NO_ENTITY
+
+    fun destroyLineEntity(player: ServerPlayer, hologramName: String, lineIndex: Int) {
+        val lines = entityIds[player.uuid]?.get(hologramName) ?: return
+        val entityId = lines.remove(lineIndex)
+        if (entityId == NO_ENTITY) return
+        PacketBatcher.send(player, ClientboundRemoveEntitiesPacket(entityId))
+        sentMetadata.remove(entityId)
+        recycledIds.add(entityId)
+    }
+
+    fun remapDisplayEntities(player: ServerPlayer, hologramName: String, previousIndices: IntArray) {
+        val playerEntities = entityIds[player.uuid] ?: return
+        val lines = playerEntities.get(hologramName) ?: return
+        val remapped = Int2IntOpenHashMap().apply { defaultReturnValue(NO_ENTITY) }
+
+        previousIndices.forEachIndexed { index, previousIndex ->
+            if (previousIndex < 0) return@forEachIndexed
+            val entityId = lines.remove(previousIndex)
+            if (entityId != NO_ENTITY) remapped.put(index, entityId)
+        }
+
+        if (!lines.isEmpty()) {
+            val idsToDestroy = IntArrayList(lines.values)
+            PacketBatcher.send(player, ClientboundRemoveEntitiesPacket(idsToDestroy))
+            for (i in 0 until idsToDestroy.size) sentMetadata.remove(idsToDestroy.getInt(i))
+            recycledIds.addAll(idsToDestroy)
+        }
+        playerEntities.put(hologramName, remapped)
+    }
+
+    fun moveDisplayEntities(player: ServerPlayer, hologramName: String, hologram: HologramData, positionChanged: Boolean = true): Boolean {
+        //? if >=1.21.2 {
+        val lines = entityIds[player.uuid]?.get(hologramName) ?: return true
+        hologram.displays.forEachIndexed { index, line ->
+            val entityId = lines.get(index)
+            if (entityId == NO_ENTITY) return@forEachIndexed
+            val display = DisplayConfig.getDisplayOrAPI(line.name)?.type ?: return@forEachIndexed
+            if (!positionChanged && display !is EntityDisplay) return@forEachIndexed
+
+            val position = hologram.position.toVec3f()
+            var pitch = 0f
+            var yaw = 0f
+            if (display is EntityDisplay) {
+                position.add(line.offset)
+                val rotation = display.rotation ?: hologram.rotation
+                pitch = rotation.x
+                yaw = rotation.y
+            }
+
+            val change = PositionMoveRotation(Vec3(position), Vec3.ZERO, yaw, pitch)
+            PacketBatcher.send(player, ClientboundTeleportEntityPacket.teleport(entityId, change, emptySet(), false))
+        }
+        return true
+        //?} else {
+        /*return false
+        *///?}
+    }
+
+    private fun createSpawnTemplate(hologram: HologramData, line: HologramData.DisplayLine, display: BaseDisplay): (Int) -> ClientboundAddEntityPacket {
+        val position = hologram.position.toVec3f()
+        if (display !is EntityDisplay) return createSpawnTemplate(position, display)
+
+        val rotation = display.rotation ?: hologram.rotation
+        return createSpawnTemplate(position.add(line.offset), display, rotation.x, rotation.y, rotation.y.toDouble())
+    }
+
+    private fun createSpawnTemplate(
         position: Vector3f,
         display: BaseDisplay,
         pitch: Float = 0f,
         yaw: Float = 0f,
         headYaw: Double = 0.0
-    ): ClientboundAddEntityPacket = safeCall {
+    ): (Int) -> ClientboundAddEntityPacket = safeCall {
         val entityType = when (display) {
             //~ if >=26.2 'EntityType' -> 'EntityTypes' {
             is TextDisplay -> EntityTypes.TEXT_DISPLAY
@@ -140,91 +251,144 @@ object PacketHandler {
         }
 
         val pos = Vec3(position)
-        ClientboundAddEntityPacket(
-            entityId, UUID.randomUUID(), pos.x, pos.y, pos.z,
-            pitch, yaw, entityType, 0, Vec3.ZERO, headYaw
-        )
+        val template: (Int) -> ClientboundAddEntityPacket = { entityId ->
+            ClientboundAddEntityPacket(
+                entityId, UUID.randomUUID(), pos.x, pos.y, pos.z,
+                pitch, yaw, entityType, 0, Vec3.ZERO, headYaw
+            )
+        }
+        template
     } ?: throw DisplayException("Failed to create spawn packet")
 
-    private fun sendDisplayMetadata(
-        player: ServerPlayer,
-        entityId: Int,
-        displayData: DisplayData,
-        hologram: HologramData,
-        line: HologramData.DisplayLine,
-        packetConsumer: (Packet<*>) -> Unit
-    ) = safeCall {
-        val entries = buildDisplayMetadata(displayData, hologram, line, player)
-        packetConsumer(ClientboundSetEntityDataPacket(entityId, entries))
-
-        if (displayData.type is EntityDisplay) {
-            val scaleAttr = AttributeInstance(Attributes.SCALE) { }
-            scaleAttr.baseValue = displayData.type.scale?.x()?.toDouble() ?: 1.0
-            val scalePacket = ClientboundUpdateAttributesPacket(entityId, listOf(scaleAttr))
-            packetConsumer(scalePacket)
+    private fun createScaleAttribute(display: BaseDisplay): AttributeInstance? {
+        if (display !is EntityDisplay) return null
+        return AttributeInstance(Attributes.SCALE) { }.apply {
+            baseValue = display.scale?.x()?.toDouble() ?: 1.0
         }
     }
 
     fun updateDisplayMetadata(
         player: ServerPlayer,
         hologramName: String,
-        displayId: String,
         lineIndex: Int,
         displayData: DisplayData,
         hologram: HologramData,
     ) = safeCall {
         val line = hologram.displays.getOrNull(lineIndex) ?: return@safeCall
-        val entries = buildDisplayMetadata(displayData, hologram, line, player)
-        val displayRef = "$displayId:$lineIndex"
-        updateEntityMetadata(player, hologramName, displayRef, entries)
+        val entries = buildDisplayMetadata(hologramName, lineIndex, displayData, hologram, line, player)
+        updateEntityMetadata(player, hologramName, lineIndex, entries)
     }
 
-    fun updateTextMetadata(
-        player: ServerPlayer,
-        hologramName: String,
-        displayId: String,
-        lineIndex: Int,
-        text: Component,
-    ) {
-        val entries = buildList {
-            add(createEntry(TextDisplayEntityAccessor.getText(), text))
+    fun textMetadata(text: Component): List<SynchedEntityData.DataValue<*>> =
+        listOf(createEntry(TextDisplayEntityAccessor.getText(), text))
+
+    fun getEntityIds(player: ServerPlayer, hologramName: String): Int2IntMap? = entityIds[player.uuid]?.get(hologramName)
+
+    fun isMetadataSent(entityId: Int, metadata: List<SynchedEntityData.DataValue<*>>): Boolean =
+        entityId == NO_ENTITY || changedMetadata(entityId, metadata).isEmpty()
+
+    fun measureTextSize(metadata: List<SynchedEntityData.DataValue<*>>): Int {
+        val buffer = sizeBuffer
+        buffer.clear()
+        return try {
+            metadata.forEach { it.write(buffer) }
+            TEXT_UPDATE_OVERHEAD + buffer.readableBytes()
+        } catch (_: Exception) {
+            TEXT_UPDATE_OVERHEAD + metadata.sumOf { (it.value() as? Component)?.string?.length ?: 0 } * 2
         }
-        val displayRef = "$displayId:$lineIndex"
-        updateEntityMetadata(player, hologramName, displayRef, entries)
+    }
+
+    fun sendTextUpdate(player: ServerPlayer, entityId: Int, metadata: List<SynchedEntityData.DataValue<*>>, size: Int) {
+        if (entityId == NO_ENTITY) return
+        PacketBatcher.sendUpdate(player, ClientboundSetEntityDataPacket(entityId, metadata), size)
+        recordMetadata(entityId, metadata)
     }
 
     private fun updateEntityMetadata(
         player: ServerPlayer,
         hologramName: String,
-        displayRef: String,
+        lineIndex: Int,
         metadata: List<SynchedEntityData.DataValue<*>>,
     ) = safeCall {
-        val compositeKey = getCompositeKey(hologramName, displayRef)
-        val entityId = entityIds[player.uuid]?.getInt(compositeKey) ?: return@safeCall
-        if (!entityIds[player.uuid]!!.containsKey(compositeKey)) return@safeCall
+        val entityId = getEntityId(player, hologramName, lineIndex)
+        if (entityId == NO_ENTITY) return@safeCall
 
-        player.connection.send(ClientboundSetEntityDataPacket(entityId, metadata))
+        val changed = changedMetadata(entityId, metadata)
+        if (changed.isEmpty()) return@safeCall
+        PacketBatcher.send(player, ClientboundSetEntityDataPacket(entityId, changed))
+        recordMetadata(entityId, changed)
     }
 
     private fun buildDisplayMetadata(
+        hologramName: String,
+        lineIndex: Int,
         displayData: DisplayData,
         hologram: HologramData,
         line: HologramData.DisplayLine,
         player: ServerPlayer,
     ): List<SynchedEntityData.DataValue<*>> = safeCall(default = emptyList()) {
-        buildList {
+        withText(compiledLine(hologramName, lineIndex, displayData, hologram, line).entries, displayData, player)
+    } ?: emptyList()
+
+    private fun withText(
+        shared: List<SynchedEntityData.DataValue<*>>,
+        displayData: DisplayData,
+        player: ServerPlayer,
+    ): List<SynchedEntityData.DataValue<*>> {
+        val display = displayData.type as? TextDisplay ?: return shared
+        return ArrayList<SynchedEntityData.DataValue<*>>(shared.size + 1).apply {
+            add(createEntry(TextDisplayEntityAccessor.getText(), TickHandler.processText(display, player)))
+            addAll(shared)
+        }
+    }
+
+    private fun compiledLine(
+        hologramName: String,
+        lineIndex: Int,
+        displayData: DisplayData,
+        hologram: HologramData,
+        line: HologramData.DisplayLine,
+        trackSpawn: Boolean = false,
+    ): CompiledLine {
+        val lines = compiledLines.getOrPut(hologramName) { Int2ObjectOpenHashMap() }
+        val cached = lines.get(lineIndex)
+        val hit = cached != null && cached.hologram === hologram && cached.displayData === displayData && cached.line === line
+        if (trackSpawn) TickMetrics.recordSpawnTemplate(hit)
+        if (hit) return cached!!
+
+        val entries = buildList {
             val display = displayData.type
-            val commonProps = commonDisplayProperties(displayData, hologram, line)
-            if (display !is EntityDisplay) addAll(commonProps)
+            if (display !is EntityDisplay) addAll(commonDisplayProperties(displayData, hologram, line))
 
             when (display) {
-                is TextDisplay -> addAll(textDisplayProperties(display, player))
+                is TextDisplay -> addAll(textDisplayProperties(display))
                 is ItemDisplay -> addAll(itemDisplayProperties(display))
                 is BlockDisplay -> addAll(blockDisplayProperties(display))
                 is EntityDisplay -> addAll(entityDisplayProperties(display))
             }
         }
-    } ?: emptyList()
+        return CompiledLine(hologram, displayData, line, entries).also { lines.put(lineIndex, it) }
+    }
+
+    fun spawnSize(hologramName: String, hologram: HologramData): Int {
+        val lines = compiledLines.get(hologramName)
+        var total = 0
+        hologram.displays.forEachIndexed { index, line ->
+            val cached = lines?.get(index)
+            val compiled = if (cached != null && cached.hologram === hologram && cached.line === line) {
+                cached
+            } else {
+                val displayData = DisplayConfig.getDisplayOrAPI(line.name) ?: return@forEachIndexed
+                compiledLine(hologramName, index, displayData, hologram, line)
+            }
+            total += if (compiled.spawnSize > 0) compiled.spawnSize else compiled.sharedSize
+        }
+        return total
+    }
+
+    fun forgetHologram(hologramName: String) {
+        compiledLines.remove(hologramName)
+    }
 
     private fun commonDisplayProperties(
         displayData: DisplayData,
@@ -262,14 +426,8 @@ object PacketHandler {
 
     }
 
-    private fun textDisplayProperties(
-        display: TextDisplay,
-        player: ServerPlayer,
-    ): List<SynchedEntityData.DataValue<*>> = safeCall(default = emptyList()) {
+    private fun textDisplayProperties(display: TextDisplay): List<SynchedEntityData.DataValue<*>> = safeCall(default = emptyList()) {
         buildList {
-            val processedText = TickHandler.processText(display.getText(), player)
-            add(createEntry(TextDisplayEntityAccessor.getText(), processedText))
-
             display.lineWidth?.also { add(createEntry(TextDisplayEntityAccessor.getLineWidth(), it)) }
 
             display.backgroundColor
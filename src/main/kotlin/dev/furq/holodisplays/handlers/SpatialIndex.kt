@@ -0,0 +1,90 @@
+package dev.furq.holodisplays.handlers
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet
+import kotlin.math.floor
+
+class SpatialIndex(private val cellSize: Int = 32) {
+    private val worlds = mutableMapOf<String, Long2ObjectOpenHashMap<ObjectOpenHashSet<Entry>>>()
+    private val entries = mutableMapOf<String, Entry>()
+
+    private class Entry(
+        val name: String,
+        val world: String,
+        val x: Double,
+        val y: Double,
+        val z: Double,
+        val rangeSq: Double,
+        val cells: LongArray,
+    )
+
+    val size: Int get() = entries.size
+
+    fun put(name: String, world: String, x: Double, y: Double, z: Double, range: Double) {
+        remove(name)
+        val minX = cell(x - range)
+        val maxX = cell(x + range)
+        val minZ = cell(z - range)
+        val maxZ = cell(z + range)
+
+        val cells = LongArray((maxX - minX + 1) * (maxZ - minZ + 1))
+        var i = 0
+        for (cx in minX..maxX) {
+            for (cz in minZ..maxZ) {
+                cells[i++] = key(cx, cz)
+            }
+        }
+
+        val entry = Entry(name, world, x, y, z, range * range, cells)
+        val grid = worlds.getOrPut(world) { Long2ObjectOpenHashMap() }
+        cells.forEach { cellKey ->
+            var bucket = grid.get(cellKey)
+            if (bucket == null) {
+                bucket = ObjectOpenHashSet()
+                grid.put(cellKey, bucket)
+            }
+            bucket.add(entry)
+        }
+        entries[name] = entry
+    }
+
+    fun remove(name: String) {
+        val entry = entries.remove(name) ?: return
+        val grid = worlds[entry.world] ?: return
+        entry.cells.forEach { cellKey ->
+            val bucket = grid.get(cellKey) ?: return@forEach
+            bucket.remove(entry)
+            if (bucket.isEmpty()) grid.remove(cellKey)
+        }
+        if (grid.isEmpty()) worlds.remove(entry.world)
+    }
+
+    fun matches(name: String, world: String, x: Double, y: Double, z: Double, range: Double): Boolean {
+        val entry = entries[name] ?: return false
+        return entry.world == world && entry.x == x && entry.y == y && entry.z == z && entry.rangeSq == range * range
+    }
+
+    fun covers(name: String, world: String, x: Double, z: Double): Boolean {
+        val entry = entries[name] ?: return false
+        return entry.world == world && key(cell(x), cell(z)) in entry.cells
+    }
+
+    fun clear() {
+        worlds.clear()
+        entries.clear()
+    }
+
+    fun forEachContaining(world: String, x: Double, y: Double, z: Double, action: (String) -> Unit) {
+        val bucket = worlds[world]?.get(key(cell(x), cell(z))) ?: return
+        bucket.forEach { entry ->
+            val dx = entry.x - x
+            val dy = entry.y - y
+            val dz = entry.z - z
+            if (dx * dx + dy * dy + dz * dz <= entry.rangeSq) action(entry.name)
+        }
+    }
+
+    private fun cell(coordinate: Double): Int = Math.floorDiv(floor(coordinate).toInt(), cellSize)
+
+    private fun key(cellX: Int, cellZ: Int): Long = (cellX.toLong() shl 32) or (cellZ.toLong() and 0xFFFFFFFFL)
+}
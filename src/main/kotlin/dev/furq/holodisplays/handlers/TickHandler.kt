@@ -1,132 +1,268 @@
 package dev.furq.holodisplays.handlers
 
-import dev.furq.holodisplays.api.HoloDisplaysAPIInternal
 import dev.furq.holodisplays.config.AnimationConfig
 import dev.furq.holodisplays.config.DisplayConfig
 import dev.furq.holodisplays.config.HologramConfig
+import dev.furq.holodisplays.config.SettingsConfig
 import dev.furq.holodisplays.data.HologramData
 import dev.furq.holodisplays.data.display.TextDisplay
-import eu.pb4.placeholders.api.PlaceholderContext
-import eu.pb4.placeholders.api.Placeholders
-import eu.pb4.placeholders.api.parsers.NodeParser
-import eu.pb4.placeholders.api.parsers.TagParser
+import dev.furq.holodisplays.data.display.TextTemplate
+import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
 import net.minecraft.network.chat.Component
-//? if >=26.1
-import eu.pb4.placeholders.api.ServerPlaceholderContext
 import net.minecraft.server.level.ServerPlayer
+import java.util.*
 
 object TickHandler {
+    private const val NOT_DUE = -1
+    private const val UNMEASURED = -1
     private var ticks = 0
-    private val animationCache = mutableMapOf<Pair<String, Int>, String>()
-    private val placeholderParser by lazy {
-        //~ if >=26.1 'DEFAULT_PLACEHOLDER_PARSER' -> 'SERVER_PLACEHOLDER_PARSER'
-        NodeParser.merge(TagParser.DEFAULT, Placeholders.SERVER_PLACEHOLDER_PARSER)
-    }
-    private val animationRegex = "<animation:([^>]+)>".toRegex()
-    private val placeholderRegex = "%([^%:]+):([^%]+)%".toRegex()
-    private val textCache = mutableMapOf<String, CachedTextInfo>()
-
-    data class CachedTextInfo(
-        val hasAnimation: Boolean,
-        val hasPlaceholder: Boolean,
-        val animationIntervals: List<Int>? = null
+    private var animationGeneration = -1
+    private val scheduler = UpdateScheduler()
+    private val activeHolograms = mutableMapOf<String, ActiveHologram>()
+    private val resolvedLines = mutableMapOf<UUID, MutableMap<String, Int2ObjectOpenHashMap<ResolvedLine>>>()
+    private val broadcastLines = mutableMapOf<String, Int2ObjectOpenHashMap<ResolvedLine>>()
+    private val dueIndices = IntArrayList()
+    private val dueTemplates = ArrayList<TextTemplate>()
+    private val dueIntervals = IntArrayList()
+    private val dueShared = ArrayList<ResolvedLine?>()
+    private val dueChanged = BooleanArrayList()
+
+    private class ActiveHologram(
+        val hologram: HologramData,
+        val indices: IntArray,
+        val displays: Array<TextDisplay>,
+        val phase: Int,
     )
 
+    class ResolvedLine(
+        var template: TextTemplate,
+        var component: Component,
+        frame: FrameTable.Frame? = null,
+    ) {
+        var entries = frame?.entries ?: PacketHandler.textMetadata(component)
+        private var measuredSize = frame?.size ?: UNMEASURED
+        val size: Int
+            get() {
+                if (measuredSize == UNMEASURED) measuredSize = PacketHandler.measureTextSize(entries)
+                return measuredSize
+            }
+
+        fun update(template: TextTemplate, component: Component, frame: FrameTable.Frame? = null): Boolean {
+            if (this.template === template && (this.component === component || this.component == component)) return false
+            if (this.component !== component) {
+                entries = frame?.entries ?: PacketHandler.textMetadata(component)
+                measuredSize = frame?.size ?: UNMEASURED
+            }
+            this.template = template
+            this.component = component
+            return true
+        }
+    }
+
     fun init() {
-        animationCache.clear()
-        textCache.clear()
+        resolvedLines.clear()
+        broadcastLines.clear()
+        scheduler.clear()
+        activeHolograms.clear()
+        animationGeneration = -1
         ticks = 0
     }
 
-    fun tick(players: List<ServerPlayer>) {
-        processHolograms(players)
-        ticks++
+    fun schedule(hologramName: String) {
+        val hologram = HologramConfig.getHologramOrAPI(hologramName)
+        if (hologram == null || ViewerHandler.getObserverCount(hologramName) == 0) {
+            deactivate(hologramName)
+            return
+        }
+        activate(hologramName, hologram)
     }
 
-    private fun processHolograms(players: List<ServerPlayer>) {
-        HologramConfig.getHolograms().forEach { (name, hologram) ->
-            if (ViewerHandler.getObserverCount(name) == 0) return@forEach
-            processHologramDisplays(name, hologram, players)
+    private fun activate(name: String, hologram: HologramData) {
+        val active = compile(name, hologram)
+        if (active == null) {
+            deactivate(name)
+            return
         }
+        activeHolograms[name] = active
+        reschedule(name, active, ticks)
+    }
 
-        HoloDisplaysAPIInternal.forEachApiHologram { name, hologram ->
-            if (ViewerHandler.getObserverCount(name) == 0) return@forEachApiHologram
-            processHologramDisplays(name, hologram, players)
-        }
+    private fun reschedule(name: String, active: ActiveHologram, from: Int) {
+        val due = nextDue(active, from)
+        if (due == NOT_DUE) scheduler.cancel(name) else scheduler.schedule(name, due)
+    }
+
+    private fun deactivate(name: String) {
+        activeHolograms.remove(name)
+        scheduler.cancel(name)
     }
 
-    private fun processHologramDisplays(name: String, hologram: HologramData, players: List<ServerPlayer>) {
+    private fun compile(name: String, hologram: HologramData): ActiveHologram? {
+        val indices = IntArrayList()
+        val displays = ArrayList<TextDisplay>()
         hologram.displays.forEachIndexed { index, displayLine ->
-            val display = DisplayConfig.getDisplayOrAPI(displayLine.name)?.type as? TextDisplay
-                ?: return@forEachIndexed
+            val display = DisplayConfig.getDisplayOrAPI(displayLine.name)?.type as? TextDisplay ?: return@forEachIndexed
+            if (!display.template.isAnimated && !display.template.hasPlaceholders()) return@forEachIndexed
+            indices.add(index)
+            displays.add(display)
+        }
+        if (indices.isEmpty) return null
+        return ActiveHologram(hologram, indices.toIntArray(), displays.toTypedArray(), name.hashCode() and Int.MAX_VALUE)
+    }
 
-            val text = display.getText()
-            if (!shouldUpdateDisplay(text, hologram.updateRate)) return@forEachIndexed
+    fun invalidate(player: ServerPlayer, hologramName: String) {
+        val holograms = resolvedLines[player.uuid] ?: return
+        holograms.remove(hologramName)
+        if (holograms.isEmpty()) resolvedLines.remove(player.uuid)
+    }
 
-            updateDisplayForViewers(name, displayLine.name, index, text, players)
-        }
+    fun invalidateBroadcast(hologramName: String) {
+        broadcastLines.remove(hologramName)
     }
 
-    private fun shouldUpdateDisplay(text: String, updateRate: Int): Boolean {
-        val info = textCache.getOrPut(text) {
-            val hasAnimation = animationRegex.containsMatchIn(text)
-            val hasPlaceholder = placeholderRegex.containsMatchIn(text)
-            val intervals = if (hasAnimation) findAnimationIntervals(text) else null
-            CachedTextInfo(hasAnimation, hasPlaceholder, intervals)
+    fun forgetHologram(hologramName: String) {
+        broadcastLines.remove(hologramName)
+        deactivate(hologramName)
+    }
+
+    fun tick() {
+        if (animationGeneration != AnimationConfig.generation) rescheduleAll()
+        scheduler.poll(ticks, ::processHologram)
+        ticks++
+    }
+
+    private fun rescheduleAll() {
+        animationGeneration = AnimationConfig.generation
+        activeHolograms.keys.toList().forEach { name -> schedule(name) }
+    }
+
+    private fun processHologram(name: String) {
+        var active = activeHolograms[name] ?: return
+        val hologram = HologramConfig.getHologramOrAPI(name)
+        if (hologram == null) {
+            deactivate(name)
+            return
+        }
+        if (active.hologram !== hologram) {
+            active = compile(name, hologram) ?: return deactivate(name)
+            activeHolograms[name] = active
         }
 
-        return when {
-            info.hasAnimation -> info.animationIntervals?.any { interval -> ticks % interval == 0 } ?: false
-            info.hasPlaceholder -> ticks % (if (updateRate <= 0) 20 else updateRate) == 0
+        safeCall { processHologramDisplays(name, active) }
+        reschedule(name, active, ticks + 1)
+    }
 
-            else -> false
+    private fun nextDue(active: ActiveHologram, from: Int): Int {
+        var due = NOT_DUE
+        active.displays.forEach { display ->
+            val template = display.template
+            if (template.isAnimated) template.animationIntervals().forEach { interval ->
+                due = earliest(due, nextMultiple(from, interval, 0))
+            }
+            if (template.hasPlaceholders()) {
+                val rate = placeholderRate(display.updateRate ?: active.hologram.updateRate)
+                due = earliest(due, nextMultiple(from, rate, active.phase))
+            }
         }
+        return due
+    }
+
+    private fun nextMultiple(from: Int, interval: Int, phase: Int): Int {
+        val offset = phase % interval
+        return (from + offset + interval - 1) / interval * interval - offset
     }
 
-    private fun processAnimations(text: String): String =
-        animationRegex.replace(text) { match ->
-            val animationName = match.groupValues[1]
-            val animation = AnimationConfig.getAnimation(animationName)
-            val cacheKey = animationName to ticks / (animation?.interval ?: 1)
+    private fun earliest(current: Int, candidate: Int): Int =
+        if (current == NOT_DUE || candidate < current) candidate else current
 
-            animationCache.getOrPut(cacheKey) {
-                getAnimationFrame(animationName, ticks)
-                    ?: "<red>Invalid animation: $animationName</red>"
+    private fun placeholderRate(updateRate: Int): Int = if (updateRate <= 0) 20 else updateRate
+
+    private fun processHologramDisplays(name: String, active: ActiveHologram) {
+        val hologram = active.hologram
+        collectDueLines(active)
+        if (dueIndices.isEmpty) return
+
+        val firstViewer = ViewerHandler.firstViewer(name) ?: return
+        for (i in dueTemplates.indices) {
+            val template = dueTemplates[i]
+            if (template.scope() != TextTemplate.Scope.SERVER) {
+                dueShared.add(null)
+                dueChanged.add(false)
+                continue
+            }
+            val lines = broadcastLines.getOrPut(name) { Int2ObjectOpenHashMap() }
+            val frame = template.frame(ticks, firstViewer)
+            val component = frame?.component ?: template.resolve(ticks, firstViewer)
+            val previous = lines.get(dueIndices.getInt(i))
+            if (previous == null) {
+                dueShared.add(ResolvedLine(template, component, frame).also { lines.put(dueIndices.getInt(i), it) })
+                dueChanged.add(true)
+            } else {
+                dueChanged.add(previous.update(template, component, frame))
+                dueShared.add(previous)
             }
         }
 
-    private fun getAnimationFrame(animationName: String, currentTick: Int): String? {
-        val animation = AnimationConfig.getAnimation(animationName) ?: return null
-        if (animation.frames.isEmpty()) return null
+        val lod = hologram.lodBands.isNotEmpty()
+        val measure = SettingsConfig.settings.network.bytesPerTick > 0
+        val position = hologram.position
+        ViewerHandler.forEachViewer(name) { player ->
+            val entityIds = PacketHandler.getEntityIds(player, name) ?: return@forEachViewer
+            val divisor = if (lod) hologram.updateDivisor(player.distanceToSqr(position.x.toDouble(), position.y.toDouble(), position.z.toDouble())) else 1
 
-        val currentIndex = (currentTick / animation.interval) % animation.frames.size
-        return animation.frames[currentIndex]
+            for (i in 0 until dueIndices.size) {
+                if (divisor > 1 && (ticks / dueIntervals.getInt(i)) % divisor != 0) continue
+                val entityId = entityIds.get(dueIndices.getInt(i))
+                val shared = dueShared[i]
+                if (shared != null) {
+                    if (!dueChanged.getBoolean(i) && (!lod || PacketHandler.isMetadataSent(entityId, shared.entries))) continue
+                    PacketHandler.sendTextUpdate(player, entityId, shared.entries, if (measure) shared.size else 0)
+                    continue
+                }
+                val line = playerLine(player, name, dueIndices.getInt(i), dueTemplates[i]) ?: continue
+                PacketHandler.sendTextUpdate(player, entityId, line.entries, if (measure) line.size else 0)
+            }
+        }
     }
 
-    private fun findAnimationIntervals(text: String): List<Int> =
-        animationRegex.findAll(text)
-            .mapNotNull { match ->
-                val animationName = match.groupValues[1]
-                AnimationConfig.getAnimation(animationName)?.interval
-            }
-            .toList()
+    private fun collectDueLines(active: ActiveHologram) {
+        dueIndices.clear()
+        dueTemplates.clear()
+        dueIntervals.clear()
+        dueShared.clear()
+        dueChanged.clear()
+        for (i in active.indices.indices) {
+            val display = active.displays[i]
+            val interval = dueInterval(display.template, display.updateRate ?: active.hologram.updateRate, active.phase)
+            if (interval == 0) continue
 
-    private fun processPlaceholders(text: String, player: ServerPlayer): Component {
-        val node = placeholderParser.parseNode(text)
-        //~ if >=26.1 'toText(PlaceholderContext.of(player))' -> 'toComponent(ServerPlaceholderContext.of(player))'
-        return node.toComponent(ServerPlaceholderContext.of(player))
+            dueIndices.add(active.indices[i])
+            dueTemplates.add(display.template)
+            dueIntervals.add(interval)
+        }
     }
 
-    private fun updateDisplayForViewers(name: String, displayRef: String, index: Int, text: String, players: List<ServerPlayer>) {
-        val viewers = players.filter { ViewerHandler.isViewing(it, name) }
-        viewers.forEach { player ->
-            val processedText = processText(text, player)
-            PacketHandler.updateTextMetadata(player, name, displayRef, index, processedText)
+    private fun dueInterval(template: TextTemplate, updateRate: Int, phase: Int): Int {
+        var due = 0
+        if (template.isAnimated) template.animationIntervals().forEach { interval ->
+            if (ticks % interval == 0 && (due == 0 || interval < due)) due = interval
         }
+        if (template.hasPlaceholders()) {
+            val rate = placeholderRate(updateRate)
+            if ((ticks + phase % rate) % rate == 0 && (due == 0 || rate < due)) due = rate
+        }
+        return due
     }
 
-    fun processText(text: String, player: ServerPlayer): Component {
-        val processedAnimations = processAnimations(text)
-        return processPlaceholders(processedAnimations, player)
+    private fun playerLine(player: ServerPlayer, name: String, index: Int, template: TextTemplate): ResolvedLine? {
+        val component = template.resolve(ticks, player)
+        val lines = resolvedLines.getOrPut(player.uuid) { mutableMapOf() }.getOrPut(name) { Int2ObjectOpenHashMap() }
+        val previous = lines.get(index) ?: return ResolvedLine(template, component).also { lines.put(index, it) }
+        return if (previous.update(template, component)) previous else null
     }
-}
\ No newline at end of file
+
+    fun processText(display: TextDisplay, player: ServerPlayer): Component = display.template.resolve(ticks, player)
+}
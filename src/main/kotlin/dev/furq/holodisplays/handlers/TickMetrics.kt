@@ -0,0 +1,64 @@
+package dev.furq.holodisplays.handlers
+
+import dev.furq.holodisplays.config.AnimationConfig
+import dev.furq.holodisplays.utils.ServerThread
+
+object TickMetrics {
+    private const val TICK_BUDGET_NANOS = 50_000_000L
+
+    var processedTicks = 0L
+        private set
+    var droppedTicks = 0L
+        private set
+    var lastTickNanos = 0L
+        private set
+    var maxTickNanos = 0L
+        private set
+    var spawnTemplateHits = 0L
+        private set
+    var spawnTemplateMisses = 0L
+        private set
+    private var totalTickNanos = 0L
+    private var skippedLast = false
+
+    val averageTickNanos: Long get() = if (processedTicks == 0L) 0L else totalTickNanos / processedTicks
+    val queueDepth: Int get() = ServerThread.queueDepth
+    val peakQueueDepth: Int get() = ServerThread.peakQueueDepth
+    val pendingSpawns: Int get() = ViewerHandler.getPendingSpawnCount()
+    val deferredUpdates: Int get() = PacketBatcher.getDeferredUpdateCount()
+    val frameTableFrames: Int get() = AnimationConfig.getFrameTables().sumOf { it.renderedFrames }
+    val frameTableBytes: Long get() = AnimationConfig.getFrameTables().sumOf { it.estimatedBytes }
+
+    fun shouldSkip(): Boolean {
+        if (lastTickNanos > TICK_BUDGET_NANOS && !skippedLast) {
+            skippedLast = true
+            droppedTicks++
+            return true
+        }
+        skippedLast = false
+        return false
+    }
+
+    fun record(nanos: Long) {
+        processedTicks++
+        lastTickNanos = nanos
+        totalTickNanos += nanos
+        if (nanos > maxTickNanos) maxTickNanos = nanos
+    }
+
+    fun recordSpawnTemplate(hit: Boolean) {
+        if (hit) spawnTemplateHits++ else spawnTemplateMisses++
+    }
+
+    fun reset() {
+        processedTicks = 0L
+        droppedTicks = 0L
+        lastTickNanos = 0L
+        maxTickNanos = 0L
+        totalTickNanos = 0L
+        spawnTemplateHits = 0L
+        spawnTemplateMisses = 0L
+        skippedLast = false
+        ServerThread.resetPeak()
+    }
+}
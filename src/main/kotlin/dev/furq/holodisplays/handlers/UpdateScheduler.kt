@@ -0,0 +1,55 @@
+package dev.furq.holodisplays.handlers
+
+class UpdateScheduler(size: Int = 512) {
+    private val mask = Integer.highestOneBit((size - 1).coerceAtLeast(1)) * 2 - 1
+    private val wheel = Array(mask + 1) { ArrayList<Entry>() }
+    private val entries = mutableMapOf<String, Entry>()
+    private val fired = ArrayList<String>()
+
+    private class Entry(
+        val name: String,
+        val due: Int,
+    ) {
+        var cancelled = false
+    }
+
+    fun schedule(name: String, due: Int) {
+        cancel(name)
+        val entry = Entry(name, due)
+        entries[name] = entry
+        wheel[due and mask].add(entry)
+    }
+
+    fun cancel(name: String) {
+        entries.remove(name)?.cancelled = true
+    }
+
+    fun poll(tick: Int, action: (String) -> Unit) {
+        val bucket = wheel[tick and mask]
+        var i = 0
+        while (i < bucket.size) {
+            val entry = bucket[i]
+            if (!entry.cancelled && entry.due - tick > 0) {
+                i++
+                continue
+            }
+            bucket[i] = bucket[bucket.size - 1]
+            bucket.removeAt(bucket.size - 1)
+            if (entry.cancelled) continue
+            entries.remove(entry.name)
+            fired.add(entry.name)
+        }
+
+        if (fired.isEmpty()) return
+        try {
+            fired.forEach(action)
+        } finally {
+            fired.clear()
+        }
+    }
+
+    fun clear() {
+        wheel.forEach { it.clear() }
+        entries.clear()
+    }
+}
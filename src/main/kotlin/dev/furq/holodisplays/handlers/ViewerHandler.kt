@@ -3,78 +3,151 @@ package dev.furq.holodisplays.handlers
 import dev.furq.holodisplays.HoloDisplays
 import dev.furq.holodisplays.config.DisplayConfig
 import dev.furq.holodisplays.config.HologramConfig
-import dev.furq.holodisplays.data.DisplayData
+import dev.furq.holodisplays.config.SettingsConfig
 import dev.furq.holodisplays.data.HologramData
-import dev.furq.holodisplays.data.display.TextDisplay
+import dev.furq.holodisplays.data.display.EntityDisplay
 import dev.furq.holodisplays.handlers.ErrorHandler.safeCall
 import dev.furq.holodisplays.utils.ConditionEvaluator
-import net.minecraft.network.protocol.Packet
-import net.minecraft.network.protocol.game.ClientGamePacketListener
-import net.minecraft.network.protocol.game.ClientboundBundlePacket
 import net.minecraft.server.level.ServerPlayer
-import net.minecraft.world.level.ChunkPos
 import java.util.*
 
 object ViewerHandler {
-    private val observers = mutableMapOf<String, MutableSet<UUID>>()
-    private val hologramChunkMap = mutableMapOf<Long, MutableSet<String>>()
+    private val observers = ObserverIndex()
+    private val spatialIndex = SpatialIndex()
+    private val evaluatedPositions = mutableMapOf<UUID, EvaluatedPosition>()
+    private val deferredChecks = mutableMapOf<UUID, DeferredChecks>()
+    private val spawnQueues = mutableMapOf<UUID, SpawnQueue>()
+    private var ticks = 0
     private val playerManager get() = HoloDisplays.SERVER?.playerList
 
+    private class EvaluatedPosition(
+        val world: String,
+        val x: Double,
+        val y: Double,
+        val z: Double,
+    )
+
+    private class DeferredChecks {
+        val names = mutableSetOf<String>()
+        var due = Int.MAX_VALUE
+
+        fun add(name: String, at: Int) {
+            names.add(name)
+            if (at < due) due = at
+        }
+    }
+
+    private class SpawnQueue {
+        private class Entry(val name: String, val distance: Double)
+
+        private val entries = mutableMapOf<String, Entry>()
+        private val order = TreeSet(compareBy<Entry> { it.distance }.thenBy { it.name })
+
+        val size get() = entries.size
+
+        fun isEmpty(): Boolean = entries.isEmpty()
+
+        fun add(name: String, distance: Double) {
+            val previous = entries[name]
+            if (previous != null) {
+                if (previous.distance == distance) return
+                order.remove(previous)
+            }
+            Entry(name, distance).also {
+                entries[name] = it
+                order.add(it)
+            }
+        }
+
+        fun remove(name: String) {
+            entries.remove(name)?.let(order::remove)
+        }
+
+        fun peek(): String? = order.firstOrNull()?.name
+
+        fun poll() {
+            order.pollFirst()?.let { entries.remove(it.name) }
+        }
+    }
+
     private fun getPlayer(uuid: UUID): ServerPlayer? = playerManager?.getPlayer(uuid)
-    fun isViewing(player: ServerPlayer, name: String): Boolean = observers[name]?.contains(player.uuid) == true
-    fun createTracker(name: String) = observers.getOrPut(name) { mutableSetOf() }
-    fun removeTracker(name: String) = observers.remove(name)
+    fun isViewing(player: ServerPlayer, name: String): Boolean = observers.contains(player.uuid, name)
+    fun createTracker(name: String) {
+        observers.track(name)
+        TickHandler.schedule(name)
+    }
+    fun removeTracker(name: String) {
+        spawnQueues.values.forEach { it.remove(name) }
+        observers.untrack(name)
+        TickHandler.forgetHologram(name)
+        PacketHandler.forgetHologram(name)
+    }
     fun clearTrackers() = observers.clear()
-    fun getObserverCount(name: String): Int = observers[name]?.size ?: 0
+    fun getObserverCount(name: String): Int = observers.viewerCount(name)
+    fun firstViewer(name: String): ServerPlayer? = observers.firstViewer(name, ::getPlayer)
+    fun forEachViewer(name: String, action: (ServerPlayer) -> Unit) = observers.forEachViewer(name) { uuid ->
+        getPlayer(uuid)?.let(action)
+    }
 
     fun resetAllObservers() {
         HologramConfig.getHolograms().keys.forEach { name ->
             removeHologramFromAllViewers(name)
         }
-        hologramChunkMap.clear()
+        spatialIndex.clear()
+        evaluatedPositions.clear()
+        deferredChecks.clear()
+        spawnQueues.clear()
     }
 
-    fun updateHologramIndex(name: String, position: HologramData.Position) {
-        removeHologramIndex(name)
-        //~ if >=26.1 'asLong' -> 'pack'
-        val chunkLong = ChunkPos.pack(
-            position.x.toInt() shr 4,
-            position.z.toInt() shr 4
-        )
-        hologramChunkMap.getOrPut(chunkLong) { mutableSetOf() }.add(name)
+    fun updateHologramIndex(name: String, hologram: HologramData) {
+        val position = hologram.position
+        val x = position.x.toDouble()
+        val y = position.y.toDouble()
+        val z = position.z.toDouble()
+        if (!spatialIndex.matches(name, position.world, x, y, z, hologram.viewRange)) {
+            invalidateNear(name)
+            spatialIndex.put(name, position.world, x, y, z, hologram.viewRange)
+            invalidateNear(name)
+        }
+        TickHandler.schedule(name)
     }
 
     fun removeHologramIndex(name: String) {
-        val iterator = hologramChunkMap.values.iterator()
-        while (iterator.hasNext()) {
-            val set = iterator.next()
-            set.remove(name)
-            if (set.isEmpty()) iterator.remove()
-        }
+        invalidateNear(name)
+        spatialIndex.remove(name)
+    }
+
+    fun invalidateNear(name: String) {
+        if (evaluatedPositions.isEmpty()) return
+        evaluatedPositions.values.removeIf { spatialIndex.covers(name, it.world, it.x, it.z) }
     }
 
     fun addViewer(player: ServerPlayer, name: String) = safeCall {
         val hologramData = HologramConfig.getHologramOrAPI(name) ?: return@safeCall
-        val observerSet = observers.getOrPut(name) { mutableSetOf() }
-        if (observerSet.add(player.uuid)) {
+        if (observers.add(player.uuid, name)) {
             showHologramToPlayer(player, name, hologramData)
+            if (observers.viewerCount(name) == 1) TickHandler.schedule(name)
         }
     }
 
     private fun removeViewer(player: ServerPlayer, name: String) {
-        observers[name]?.let { observerSet ->
-            if (observerSet.remove(player.uuid)) {
-                PacketHandler.destroyDisplayEntity(player, name)
-            }
+        if (observers.remove(player.uuid, name)) {
+            PacketHandler.destroyDisplayEntity(player, name)
+            if (observers.viewerCount(name) == 0) TickHandler.schedule(name)
         }
     }
 
     fun clearViewers(player: ServerPlayer) {
-        observers.keys.forEach { name -> removeViewer(player, name) }
+        observers.viewedBy(player.uuid).forEach { name -> removeViewer(player, name) }
+        observers.removePlayer(player.uuid)
+        evaluatedPositions.remove(player.uuid)
+        deferredChecks.remove(player.uuid)
+        spawnQueues.remove(player.uuid)
+        ConditionEvaluator.clear(player)
     }
 
     fun removeHologramFromAllViewers(name: String) {
-        observers[name]?.toList()?.forEach { uuid ->
+        observers.viewers(name).forEach { uuid ->
             getPlayer(uuid)?.let { player ->
                 removeViewer(player, name)
             }
@@ -83,7 +156,8 @@ object ViewerHandler {
 
     fun respawnForAllObservers(name: String) {
         val hologramData = HologramConfig.getHologramOrAPI(name) ?: return
-        observers[name]?.toList()?.forEach { uuid ->
+        TickHandler.schedule(name)
+        observers.viewers(name).forEach { uuid ->
             getPlayer(uuid)?.let { player ->
                 PacketHandler.destroyDisplayEntity(player, name)
                 showHologramToPlayer(player, name, hologramData)
@@ -91,9 +165,75 @@ object ViewerHandler {
         }
     }
 
+    fun applyLineChanges(name: String, previous: HologramData, updated: HologramData) = safeCall {
+        val previousIndices = matchLines(previous.displays, updated.displays)
+        val moved = updated.displays.indices.any { index ->
+            val previousIndex = previousIndices[index]
+            previousIndex >= 0 && previous.displays[previousIndex].offset != updated.displays[index].offset &&
+                    DisplayConfig.getDisplayOrAPI(updated.displays[index].name)?.type is EntityDisplay
+        }
+        TickHandler.invalidateBroadcast(name)
+        TickHandler.schedule(name)
+
+        observers.viewers(name).mapNotNull { getPlayer(it) }.forEach { player ->
+            if (!ConditionEvaluator.evaluate(updated.conditionalPlaceholder, player)) {
+                removeViewer(player, name)
+                return@forEach
+            }
+            if (PacketHandler.getEntityIds(player, name) == null) {
+                showHologramToPlayer(player, name, updated)
+                return@forEach
+            }
+            PacketHandler.remapDisplayEntities(player, name, previousIndices)
+            if (moved && !PacketHandler.moveDisplayEntities(player, name, updated, positionChanged = false)) {
+                PacketHandler.destroyDisplayEntity(player, name)
+                showHologramToPlayer(player, name, updated)
+                return@forEach
+            }
+
+            updated.displays.forEachIndexed { index, line ->
+                val display = DisplayConfig.getDisplayOrAPI(line.name) ?: return@forEachIndexed
+                val visible = ConditionEvaluator.evaluate(display.type.conditionalPlaceholder, player)
+                val spawned = PacketHandler.hasEntity(player, name, index)
+                when {
+                    visible && !spawned -> PacketHandler.spawnDisplayEntity(player, name, line, display, index, updated)
+                    !visible && spawned -> PacketHandler.destroyLineEntity(player, name, index)
+                }
+            }
+            updateHologramForPlayer(player, name, updated)
+        }
+    }
+
+    private fun matchLines(previous: List<HologramData.DisplayLine>, updated: List<HologramData.DisplayLine>): IntArray {
+        val used = BooleanArray(previous.size)
+        return IntArray(updated.size) { index ->
+            val name = updated[index].name
+            val match = if (index < previous.size && previous[index].name == name && !used[index]) {
+                index
+            } else {
+                previous.indices.firstOrNull { !used[it] && previous[it].name == name } ?: -1
+            }
+            if (match >= 0) used[match] = true
+            match
+        }
+    }
+
+    fun moveForAllObservers(name: String, positionChanged: Boolean = true) = safeCall {
+        val hologramData = HologramConfig.getHologramOrAPI(name) ?: return@safeCall
+        observers.viewers(name).mapNotNull { getPlayer(it) }.forEach { player ->
+            if (PacketHandler.moveDisplayEntities(player, name, hologramData, positionChanged)) {
+                updateHologramForPlayer(player, name, hologramData)
+            } else {
+                PacketHandler.destroyDisplayEntity(player, name)
+                showHologramToPlayer(player, name, hologramData)
+            }
+        }
+    }
+
     fun updateForAllObservers(name: String) = safeCall {
         val hologramData = HologramConfig.getHologramOrAPI(name) ?: return@safeCall
-        observers[name]?.mapNotNull { getPlayer(it) }?.forEach { player ->
+        TickHandler.schedule(name)
+        observers.viewers(name).mapNotNull { getPlayer(it) }.forEach { player ->
             updateHologramForPlayer(player, name, hologramData)
         }
     }
@@ -101,80 +241,168 @@ object ViewerHandler {
     private fun showHologramToPlayer(player: ServerPlayer, name: String, hologram: HologramData) = safeCall {
         if (!ConditionEvaluator.evaluate(hologram.conditionalPlaceholder, player)) return@safeCall
 
-        val packets = mutableListOf<Packet<in ClientGamePacketListener>>()
-        val packetConsumer: (Packet<*>) -> Unit = {
-            @Suppress("UNCHECKED_CAST")
-            packets.add(it as Packet<in ClientGamePacketListener>)
-        }
-
         hologram.displays.forEachIndexed { index, entity ->
             val display = DisplayConfig.getDisplayOrAPI(entity.name) ?: return@forEachIndexed
             if (!ConditionEvaluator.evaluate(display.type.conditionalPlaceholder, player)) return@forEachIndexed
 
-            PacketHandler.spawnDisplayEntity(player, name, entity, processDisplayForPlayer(display), hologram.position.toVec3f(), index, hologram, packetConsumer)
+            PacketHandler.spawnDisplayEntity(player, name, entity, display, index, hologram)
         }
-
-        if (packets.isNotEmpty()) {
-             player.connection.send(ClientboundBundlePacket(packets))
-        }
-    }
-
-    private fun processDisplayForPlayer(display: DisplayData): DisplayData = when (val displayType = display.type) {
-        is TextDisplay -> display.copy(type = displayType.copy(lines = mutableListOf(displayType.getText())))
-        else -> display
     }
 
     private fun updateHologramForPlayer(player: ServerPlayer, name: String, hologram: HologramData) {
         if (!ConditionEvaluator.evaluate(hologram.conditionalPlaceholder, player)) return
+        TickHandler.invalidate(player, name)
 
         hologram.displays.forEachIndexed { index, entity ->
             DisplayConfig.getDisplayOrAPI(entity.name)?.let { display ->
                 if (!ConditionEvaluator.evaluate(display.type.conditionalPlaceholder, player)) return@let
                 PacketHandler.updateDisplayMetadata(
-                    player, name, entity.name, index,
-                    processDisplayForPlayer(display), hologram
+                    player, name, index,
+                    display, hologram
                 )
             }
         }
     }
 
-    fun updatePlayerVisibility(player: ServerPlayer) {
-        //~ if >=1.21.11 'location' -> 'identifier'
-        val playerWorld = player.level().dimension().identifier().toString()
-        val playerChunkX = player.chunkPosition().x
-        val playerChunkZ = player.chunkPosition().z
-        
-        val viewDistance = playerManager?.viewDistance ?: 10
-        
-        val nearbyHolograms = mutableSetOf<String>()
-        for (x in -viewDistance..viewDistance) {
-            for (z in -viewDistance..viewDistance) {
-                //~ if >=26.1 'asLong' -> 'pack'
-                val chunkLong = ChunkPos.pack(playerChunkX + x, playerChunkZ + z)
-                hologramChunkMap[chunkLong]?.let { nearbyHolograms.addAll(it) }
+    fun tick(players: List<ServerPlayer>) {
+        val settings = SettingsConfig.settings.visibility
+        val sweepInterval = settings.fullSweepInterval
+
+        players.forEach { player ->
+            val phase = phaseOf(player)
+            val sweep = sweepInterval > 0 && (ticks + phase) % sweepInterval == 0
+            if (sweep || hasMoved(player, settings.moveThreshold)) {
+                evaluatePlayer(player, phase, false)
+            } else {
+                deferredChecks[player.uuid]?.takeIf { it.due - ticks <= 0 }?.let { recheckDeferred(player, phase, it) }
+            }
+            drainSpawnQueue(player)
+        }
+        ticks++
+    }
+
+    fun getPendingSpawnCount(): Int = spawnQueues.values.sumOf { it.size }
+
+    private fun drainSpawnQueue(player: ServerPlayer) {
+        val queue = spawnQueues[player.uuid] ?: return
+        val settings = SettingsConfig.settings.spawning
+        val budget = settings.entitiesPerTick
+        val byteBudget = settings.bytesPerTick
+
+        var spawned = 0
+        var bytes = 0
+        while (true) {
+            val name = queue.peek() ?: break
+            val hologram = HologramConfig.getHologramOrAPI(name)
+            if (hologram == null) {
+                queue.poll()
+                continue
             }
+            if (spawned > 0 && budget > 0 && spawned + hologram.displays.size > budget) break
+            val size = if (byteBudget > 0) PacketHandler.spawnSize(name, hologram) else 0
+            if (spawned > 0 && byteBudget > 0 && bytes + size > byteBudget) break
+
+            queue.poll()
+            if (!ConditionEvaluator.evaluate(hologram.conditionalPlaceholder, player) ||
+                !HologramHandler.isPlayerInRange(player, hologram.world, hologram.position.toVec3f(), hologram.viewRange)) continue
+
+            addViewer(player, name)
+            spawned += hologram.displays.size
+            bytes += size
         }
 
-        val potentialHolograms = nearbyHolograms + (observers.entries.filter { it.value.contains(player.uuid) }.map { it.key })
+        if (queue.isEmpty()) spawnQueues.remove(player.uuid)
+    }
+
+    private fun distanceTo(player: ServerPlayer, hologram: HologramData): Double {
+        val position = hologram.position
+        return player.position().distanceToSqr(position.x.toDouble(), position.y.toDouble(), position.z.toDouble())
+    }
+
+    private fun phaseOf(player: ServerPlayer): Int = player.uuid.hashCode() and Int.MAX_VALUE
+
+    private fun isCheckDue(hologram: HologramData, phase: Int): Boolean {
+        val interval = hologram.visibilityCheckInterval
+        return interval <= 1 || (ticks + phase % interval) % interval == 0
+    }
+
+    private fun nextCheck(hologram: HologramData, phase: Int): Int {
+        val interval = hologram.visibilityCheckInterval
+        return ticks + interval - (ticks + phase % interval) % interval
+    }
+
+    private fun hasMoved(player: ServerPlayer, threshold: Double): Boolean {
+        val last = evaluatedPositions[player.uuid] ?: return true
+        //~ if >=1.21.11 'location' -> 'identifier'
+        if (last.world != player.level().dimension().identifier().toString()) return true
+        return player.position().distanceToSqr(last.x, last.y, last.z) > threshold * threshold
+    }
+
+    fun updatePlayerVisibility(player: ServerPlayer) = evaluatePlayer(player, phaseOf(player), true)
+
+    private fun evaluatePlayer(player: ServerPlayer, phase: Int, force: Boolean) {
+        //~ if >=1.21.11 'location' -> 'identifier'
+        val playerWorld = player.level().dimension().identifier().toString()
+        val playerPos = player.position()
+        val checkAll = force || evaluatedPositions[player.uuid]?.world != playerWorld
+        evaluatedPositions[player.uuid] = EvaluatedPosition(playerWorld, playerPos.x, playerPos.y, playerPos.z)
+
+        val potentialHolograms = mutableSetOf<String>()
+        spatialIndex.forEachContaining(playerWorld, playerPos.x, playerPos.y, playerPos.z) { potentialHolograms.add(it) }
+        observers.forEachViewed(player.uuid) { potentialHolograms.add(it) }
 
+        val deferred = DeferredChecks()
         potentialHolograms.forEach { name ->
             val hologram = HologramConfig.getHologramOrAPI(name) ?: return@forEach
-            val isCurrentlyViewing = isViewing(player, name)
 
             if (hologram.world != playerWorld) {
-                if (isCurrentlyViewing) {
+                if (isViewing(player, name)) {
                     removeViewer(player, name)
                 }
+                spawnQueues[player.uuid]?.remove(name)
                 return@forEach
             }
 
-            val shouldView = ConditionEvaluator.evaluate(hologram.conditionalPlaceholder, player) &&
-                    HologramHandler.isPlayerInRange(player, hologram.world, hologram.position.toVec3f(), hologram.viewRange)
+            if (!checkAll && !isCheckDue(hologram, phase)) {
+                deferred.add(name, nextCheck(hologram, phase))
+                return@forEach
+            }
+
+            updateVisibility(player, name, hologram)
+        }
+
+        if (deferred.names.isNotEmpty()) deferredChecks[player.uuid] = deferred else deferredChecks.remove(player.uuid)
+    }
 
-            when {
-                shouldView && !isCurrentlyViewing -> addViewer(player, name)
-                !shouldView && isCurrentlyViewing -> removeViewer(player, name)
+    private fun recheckDeferred(player: ServerPlayer, phase: Int, checks: DeferredChecks) {
+        checks.due = Int.MAX_VALUE
+        val iterator = checks.names.iterator()
+        while (iterator.hasNext()) {
+            val name = iterator.next()
+            val hologram = HologramConfig.getHologramOrAPI(name)
+            if (hologram == null) {
+                iterator.remove()
+                continue
+            }
+            if (!isCheckDue(hologram, phase)) {
+                checks.due = minOf(checks.due, nextCheck(hologram, phase))
+                continue
             }
+            iterator.remove()
+            updateVisibility(player, name, hologram)
+        }
+        if (checks.names.isEmpty()) deferredChecks.remove(player.uuid)
+    }
+
+    private fun updateVisibility(player: ServerPlayer, name: String, hologram: HologramData) {
+        val isCurrentlyViewing = isViewing(player, name)
+        val shouldView = ConditionEvaluator.evaluate(hologram.conditionalPlaceholder, player) &&
+                HologramHandler.isPlayerInRange(player, hologram.world, hologram.position.toVec3f(), hologram.viewRange)
+
+        when {
+            shouldView && !isCurrentlyViewing -> spawnQueues.getOrPut(player.uuid) { SpawnQueue() }.add(name, distanceTo(player, hologram))
+            !shouldView && isCurrentlyViewing -> removeViewer(player, name)
+            !shouldView -> spawnQueues[player.uuid]?.remove(name)
         }
     }
 }
\ No newline at end of file
@@ -191,6 +191,15 @@ object DisplayManager {
     fun updateShadow(name: String, shadow: Boolean, source: CommandSourceStack) =
         updateProperty(name, source, TextShadow(shadow), FeedbackType.DISPLAY_UPDATED, "detail" to "shadow ${if (shadow) "enabled" else "disabled"}")
 
+    fun updateTextUpdateRate(name: String, rate: Int?, source: CommandSourceStack) {
+        if (rate != null && rate < 1) {
+            FeedbackManager.send(source, FeedbackType.INVALID_UPDATE_RATE)
+            return
+        }
+        val detail = if (rate != null) "update rate set to ${rate}t" else "update rate reset to hologram default"
+        updateProperty(name, source, TextUpdateRate(rate), FeedbackType.DISPLAY_UPDATED, "detail" to detail)
+    }
+
     fun updateAlignment(name: String, alignment: String, source: CommandSourceStack) {
         requireDisplayExists(name, source) {
             val textAlignment = try {
@@ -212,7 +221,7 @@ object DisplayManager {
 
     fun updateCondition(name: String, condition: String?, source: CommandSourceStack) {
         requireDisplayExists(name, source) {
-            if (condition != null && ConditionEvaluator.parseCondition(condition) == null) {
+            if (condition != null && !ConditionEvaluator.isValid(condition)) {
                 FeedbackManager.send(source, FeedbackType.INVALID_CONDITION)
                 return
             }
@@ -139,6 +139,15 @@ object HologramManager {
         updateProperty(name, source, UpdateRate(newRate), FeedbackType.HOLOGRAM_UPDATED, "detail" to "update rate set to ${newRate}t")
     }
 
+    fun updateVisibilityCheckInterval(name: String, interval: Int?, source: CommandSourceStack) {
+        val newInterval = interval ?: 1
+        if (interval != null && newInterval < 1) {
+            FeedbackManager.send(source, FeedbackType.INVALID_VISIBILITY_CHECK_INTERVAL)
+            return
+        }
+        updateProperty(name, source, VisibilityCheckInterval(newInterval), FeedbackType.HOLOGRAM_UPDATED, "detail" to "visibility check interval set to ${newInterval}t")
+    }
+
     fun updateViewRange(name: String, range: Float?, source: CommandSourceStack) {
         val newRange = range ?: 48f
         if (range != null && newRange !in 1f..128f) {
@@ -149,7 +158,7 @@ object HologramManager {
     }
 
     fun updateCondition(name: String, condition: String?, source: CommandSourceStack) {
-        if (condition != null && ConditionEvaluator.parseCondition(condition) == null) {
+        if (condition != null && !ConditionEvaluator.isValid(condition)) {
             FeedbackManager.send(source, FeedbackType.INVALID_CONDITION)
             return
         }
@@ -1,56 +1,205 @@
 package dev.furq.holodisplays.utils
 
-import eu.pb4.placeholders.api.PlaceholderContext
-import eu.pb4.placeholders.api.Placeholders
-import eu.pb4.placeholders.api.parsers.NodeParser
-import eu.pb4.placeholders.api.parsers.TagParser
+import dev.furq.holodisplays.HoloDisplays
+import dev.furq.holodisplays.config.SettingsConfig
+import dev.furq.holodisplays.data.display.TextTemplate
+import eu.pb4.placeholders.api.node.TextNode
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap
 import net.minecraft.server.level.ServerPlayer
-//? if >=26.1
-import eu.pb4.placeholders.api.ServerPlaceholderContext
+import java.util.*
 
 object ConditionEvaluator {
     private val operatorRegex = "\\s(=|!=|>|<|>=|<=|contains|!contains|startsWith|endsWith)\\s".toRegex()
-    private val placeholderParser by lazy {
-        //~ if >=26.1 'DEFAULT_PLACEHOLDER_PARSER' -> 'SERVER_PLACEHOLDER_PARSER'
-        NodeParser.merge(TagParser.DEFAULT, Placeholders.SERVER_PLACEHOLDER_PARSER)
+    private val compiled = mutableMapOf<String, Condition>()
+    private val results = mutableMapOf<UUID, Object2LongOpenHashMap<String>>()
+
+    enum class Operator(val symbol: String) {
+        EQUALS("="),
+        NOT_EQUALS("!="),
+        GREATER(">"),
+        LESS("<"),
+        GREATER_OR_EQUAL(">="),
+        LESS_OR_EQUAL("<="),
+        CONTAINS("contains"),
+        NOT_CONTAINS("!contains"),
+        STARTS_WITH("startsWith"),
+        ENDS_WITH("endsWith");
+
+        fun test(left: String, right: String): Boolean = when (this) {
+            EQUALS -> left == right
+            NOT_EQUALS -> left != right
+            GREATER -> compareNumbers(left, right) { a, b -> a > b }
+            LESS -> compareNumbers(left, right) { a, b -> a < b }
+            GREATER_OR_EQUAL -> compareNumbers(left, right) { a, b -> a >= b }
+            LESS_OR_EQUAL -> compareNumbers(left, right) { a, b -> a <= b }
+            CONTAINS -> right in left
+            NOT_CONTAINS -> right !in left
+            STARTS_WITH -> left.startsWith(right)
+            ENDS_WITH -> left.endsWith(right)
+        }
+
+        private inline fun compareNumbers(left: String, right: String, comparator: (Double, Double) -> Boolean): Boolean {
+            val leftNum = left.toDoubleOrNull() ?: return false
+            val rightNum = right.toDoubleOrNull() ?: return false
+            return comparator(leftNum, rightNum)
+        }
+
+        companion object {
+            private val bySymbol = entries.associateBy { it.symbol }
+            fun of(symbol: String): Operator? = bySymbol[symbol]
+        }
+    }
+
+    sealed interface Condition {
+        fun evaluate(player: ServerPlayer): Boolean
+
+        data object Always : Condition {
+            override fun evaluate(player: ServerPlayer) = true
+        }
+
+        class And(private val left: Condition, private val right: Condition) : Condition {
+            override fun evaluate(player: ServerPlayer) = left.evaluate(player) && right.evaluate(player)
+        }
+
+        class Or(private val left: Condition, private val right: Condition) : Condition {
+            override fun evaluate(player: ServerPlayer) = left.evaluate(player) || right.evaluate(player)
+        }
+
+        class Comparison(private val placeholder: TextNode, private val operator: Operator, private val value: String) : Condition {
+            override fun evaluate(player: ServerPlayer) = operator.test(TextTemplate.resolve(placeholder, player).string, value)
+        }
     }
 
     fun evaluate(condition: String?, player: ServerPlayer): Boolean {
         condition ?: return true
+        val compiledCondition = compiled.getOrPut(condition) { compileOrFallback(condition) }
+        if (compiledCondition === Condition.Always) return true
 
-        val (placeholder, operator, value) = parseCondition(condition) ?: return true
-        val resolvedValue = resolvePlaceholder(placeholder.trim(), player)
+        val ttl = SettingsConfig.settings.conditions.cacheTicks
+        if (ttl <= 0) return compiledCondition.evaluate(player)
 
-        return when (operator.trim()) {
-            "=" -> resolvedValue == value
-            "!=" -> resolvedValue != value
-            ">" -> compareNumbers(resolvedValue, value) { a, b -> a > b }
-            "<" -> compareNumbers(resolvedValue, value) { a, b -> a < b }
-            ">=" -> compareNumbers(resolvedValue, value) { a, b -> a >= b }
-            "<=" -> compareNumbers(resolvedValue, value) { a, b -> a <= b }
-            "contains" -> value in resolvedValue
-            "!contains" -> value !in resolvedValue
-            "startsWith" -> resolvedValue.startsWith(value)
-            "endsWith" -> resolvedValue.endsWith(value)
-            else -> true
-        }
+        val now = HoloDisplays.SERVER?.tickCount?.toLong() ?: 0L
+        val playerResults = results.getOrPut(player.uuid) { Object2LongOpenHashMap<String>().apply { defaultReturnValue(-1L) } }
+        val cached = playerResults.getLong(condition)
+        if (cached >= 0 && cached shr 1 > now) return cached and 1L == 1L
+
+        val result = compiledCondition.evaluate(player)
+        playerResults.put(condition, ((now + ttl) shl 1) or (if (result) 1L else 0L))
+        return result
     }
 
-    private inline fun compareNumbers(left: String, right: String, comparator: (Double, Double) -> Boolean): Boolean {
-        val leftNum = left.toDoubleOrNull() ?: return false
-        val rightNum = right.toDoubleOrNull() ?: return false
-        return comparator(leftNum, rightNum)
+    fun isValid(condition: String): Boolean = compile(condition) != null
+
+    fun clear(player: ServerPlayer) {
+        results.remove(player.uuid)
     }
 
-    fun parseCondition(condition: String): Triple<String, String, String>? {
-        val match = operatorRegex.find(condition) ?: return null
+    fun clearCache() {
+        compiled.clear()
+        results.clear()
+    }
+
+    fun compile(condition: String): Condition? = try {
+        Parser(condition).parse()
+    } catch (_: IllegalArgumentException) {
+        null
+    }
+
+    private fun compileOrFallback(condition: String): Condition {
+        compile(condition)?.let { return it }
+        val fallback = try {
+            parseComparison(condition)
+        } catch (_: IllegalArgumentException) {
+            null
+        }
+        if (fallback == null) {
+            HoloDisplays.LOGGER.warn("Invalid condition '$condition', it will always pass")
+            return Condition.Always
+        }
+        HoloDisplays.LOGGER.warn("Could not parse condition '$condition' as an expression, evaluating it as a single comparison")
+        return fallback
+    }
+
+    private fun parseComparison(text: String): Condition.Comparison {
+        val match = operatorRegex.find(text) ?: throw IllegalArgumentException("Missing operator in '$text'")
         val operator = match.groupValues[1]
-        val parts = condition.split(" $operator ")
-        return if (parts.size == 2) Triple(parts[0], operator, parts[1]) else null
+        val parts = text.split(" $operator ")
+        require(parts.size == 2) { "Invalid comparison '$text'" }
+        return Condition.Comparison(TextTemplate.parse(parts[0].trim()), Operator.of(operator)!!, parts[1].trim())
     }
 
-    private fun resolvePlaceholder(placeholder: String, player: ServerPlayer): String =
-        placeholderParser.parseNode(placeholder)
-            //~ if >=26.1 'toText(PlaceholderContext.of(player)).string' -> 'toComponent(ServerPlaceholderContext.of(player)).string'
-            .toComponent(ServerPlaceholderContext.of(player)).string
-}
\ No newline at end of file
+    private class Parser(private val input: String) {
+        private var pos = 0
+        private var depth = 0
+
+        fun parse(): Condition {
+            val condition = parseOr()
+            skipWhitespace()
+            require(pos == input.length) { "Unexpected '${input.substring(pos)}'" }
+            return condition
+        }
+
+        private fun parseOr(): Condition {
+            var left = parseAnd()
+            while (consume("||")) {
+                left = Condition.Or(left, parseAnd())
+            }
+            return left
+        }
+
+        private fun parseAnd(): Condition {
+            var left = parsePrimary()
+            while (consume("&&")) {
+                left = Condition.And(left, parsePrimary())
+            }
+            return left
+        }
+
+        private fun parsePrimary(): Condition {
+            if (consume("(")) {
+                depth++
+                val inner = parseOr()
+                require(consume(")")) { "Missing closing parenthesis" }
+                depth--
+                return inner
+            }
+            return parseComparison(readComparison())
+        }
+
+        private fun readComparison(): String {
+            skipWhitespace()
+            val start = pos
+            var inPlaceholder = false
+            var nested = 0
+            while (pos < input.length) {
+                val char = input[pos]
+                if (char == '%') inPlaceholder = !inPlaceholder
+                if (!inPlaceholder) {
+                    if (char == '(') nested++
+                    if (char == ')') {
+                        if (nested > 0) nested-- else if (depth > 0) break
+                    }
+                    if (isLogicalOperator(pos)) break
+                }
+                pos++
+            }
+            return input.substring(start, pos).trim()
+        }
+
+        private fun isLogicalOperator(at: Int): Boolean {
+            if (!input.startsWith("&&", at) && !input.startsWith("||", at)) return false
+            return at > 0 && input[at - 1].isWhitespace() && at + 2 < input.length && input[at + 2].isWhitespace()
+        }
+
+        private fun consume(token: String): Boolean {
+            skipWhitespace()
+            if (!input.startsWith(token, pos)) return false
+            pos += token.length
+            return true
+        }
+
+        private fun skipWhitespace() {
+            while (pos < input.length && input[pos].isWhitespace()) pos++
+        }
+    }
+}
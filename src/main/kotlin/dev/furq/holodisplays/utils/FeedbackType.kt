@@ -18,6 +18,8 @@ enum class FeedbackType(private val template: String, val isError: Boolean = fal
     BACKGROUND_UPDATED("Background set to #{color} with {opacity}% opacity"),
     OPACITY_UPDATED("Text opacity set to {opacity}%"),
     RELOAD_SUCCESS("All configurations reloaded successfully"),
+    STATS("Tick: {avg}ms avg, {max}ms max over {ticks} ticks | Dropped ticks: {dropped} | Queued tasks: {queue} (peak {peak}) | Spawn cache: {hits} hits, {misses} misses | Pending spawns: {spawns} | Deferred updates: {deferred} | Frame tables: {frames} frames (~{frameKb} KB)"),
+    STATS_RESET("Statistics have been reset"),
     LINE_WIDTH_UPDATED("Line width set to {width}"),
     SEE_THROUGH_UPDATED("See-through mode {enabled}"),
     ITEM_ID_UPDATED("Item ID updated to {id}."),
@@ -43,8 +45,9 @@ enum class FeedbackType(private val template: String, val isError: Boolean = fal
     INVALID_ENTITY("Invalid entity ID. Entity does not exist in the game", true),
     INVALID_TEXT_OPACITY("Invalid text opacity. Must be between 1 and 100", true),
     INVALID_UPDATE_RATE("Invalid update rate. Must be at least 1 tick", true),
+    INVALID_VISIBILITY_CHECK_INTERVAL("Invalid visibility check interval. Must be at least 1 tick", true),
     INVALID_ROTATION("Invalid rotation values. Must be valid angles", true),
-    INVALID_CONDITION("Invalid condition format. Use: %placeholder% operator value", true),
+    INVALID_CONDITION("Invalid condition format. Use: %placeholder% operator value, combined with &&, || and parentheses", true),
     DISPLAY_ALREADY_ADDED("Display '{name}' is already added to this hologram", true),
     PLAYER_ONLY("This command can only be used by players", true);
 
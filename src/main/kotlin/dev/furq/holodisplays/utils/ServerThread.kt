@@ -0,0 +1,46 @@
+package dev.furq.holodisplays.utils
+
+import dev.furq.holodisplays.HoloDisplays
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+import kotlin.math.max
+
+object ServerThread {
+    private const val TIMEOUT_SECONDS = 10L
+
+    private val pending = AtomicInteger()
+    private val peak = AtomicInteger()
+
+    val queueDepth: Int get() = pending.get()
+    val peakQueueDepth: Int get() = peak.get()
+
+    fun <T> call(task: Supplier<T>): T {
+        val server = HoloDisplays.SERVER
+        if (server == null || server.isSameThread) return task.get()
+        check(server.isRunning) { "Server is not running" }
+
+        val depth = pending.incrementAndGet()
+        peak.accumulateAndGet(depth, ::max)
+        val future = server.submit(Supplier {
+            try {
+                task.get()
+            } finally {
+                pending.decrementAndGet()
+            }
+        })
+
+        return try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        } catch (e: TimeoutException) {
+            if (future.cancel(false)) pending.decrementAndGet()
+            throw IllegalStateException("Timed out after ${TIMEOUT_SECONDS}s waiting for the server thread", e)
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    fun resetPeak() = peak.set(pending.get())
+}
@@ -0,0 +1,27 @@
+package dev.furq.holodisplays.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks inside the test JVM so they see the same remapped and mixin-transformed
+ * classes as the mod. Run with {@code ./gradlew test -Pbenchmark}, or {@code -Pbenchmark=<regex>}
+ * to select benchmarks. Allocation rates are reported through the GC profiler.
+ */
+@Tag("benchmark")
+class BenchmarkRunner {
+    @Test
+    void run() throws RunnerException {
+        String filter = System.getProperty("holodisplays.benchmark", "");
+        new Runner(new OptionsBuilder()
+                .include(filter.isBlank() || filter.equals("true") ? BenchmarkRunner.class.getPackageName() + "\\..*Benchmark" : filter)
+                .forks(0)
+                .shouldFailOnError(true)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
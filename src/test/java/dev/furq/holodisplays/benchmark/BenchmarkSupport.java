@@ -0,0 +1,179 @@
+package dev.furq.holodisplays.benchmark;
+
+import com.mojang.authlib.GameProfile;
+import dev.furq.holodisplays.HoloDisplays;
+import dev.furq.holodisplays.config.ConfigManager;
+import dev.furq.holodisplays.handlers.McRegistries;
+import dev.furq.holodisplays.handlers.PacketBatcher;
+import dev.furq.holodisplays.handlers.PacketHandler;
+import dev.furq.holodisplays.handlers.TickHandler;
+import dev.furq.holodisplays.handlers.ViewerHandler;
+import dev.furq.holodisplays.utils.ConditionEvaluator;
+import eu.pb4.placeholders.api.PlaceholderResult;
+import eu.pb4.placeholders.api.Placeholders;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.dedicated.DedicatedPlayerList;
+import net.minecraft.server.dedicated.DedicatedServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.players.PlayerList;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.Vec3;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds just enough of a server for the handlers to run outside the game: a bootstrapped registry,
+ * config files in a temporary directory and connection-less players that are never sent packets.
+ */
+public final class BenchmarkSupport {
+    private static final Objenesis OBJENESIS = new ObjenesisStd();
+    private static boolean bootstrapped;
+    private static ServerLevel level;
+    private static DedicatedServer server;
+
+    private BenchmarkSupport() {
+    }
+
+    public static synchronized void bootstrap() {
+        if (bootstrapped) return;
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        bootstrapped = true;
+    }
+
+    public static Path configDir() {
+        try {
+            return Files.createTempDirectory("holodisplays-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void writeConfig(Path configDir, String folder, String name, String json) {
+        try {
+            Path dir = Files.createDirectories(configDir.resolve(folder));
+            Files.writeString(dir.resolve(name + ".json"), json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops the state left behind by a previous benchmark and loads the configs written to the
+     * given directory.
+     */
+    public static void loadConfigs(Path configDir) {
+        ViewerHandler.INSTANCE.resetAllObservers();
+        ViewerHandler.INSTANCE.clearTrackers();
+        PacketHandler.INSTANCE.resetEntityTracking();
+        PacketBatcher.INSTANCE.clear();
+        ConditionEvaluator.INSTANCE.clearCache();
+        ConfigManager.INSTANCE.init(configDir);
+        TickHandler.INSTANCE.init();
+    }
+
+    /**
+     * Makes every player a viewer of the hologram, spawning its lines for them.
+     */
+    public static void view(String hologram, List<ServerPlayer> players) {
+        ViewerHandler.INSTANCE.createTracker(hologram);
+        players.forEach(player -> ViewerHandler.INSTANCE.addViewer(player, hologram));
+        PacketBatcher.INSTANCE.clear();
+    }
+
+    /**
+     * Registers {@code %bench:p0%} to {@code %bench:p<count - 1>%}, each returning a constant value
+     * without looking at the context.
+     */
+    public static void registerPlaceholders(int count) {
+        for (int i = 0; i < count; i++) {
+            String value = "value " + i;
+            Placeholders.register(McRegistries.INSTANCE.parseId("bench:p" + i), (context, argument) -> PlaceholderResult.value(value));
+        }
+    }
+
+    public static String textDisplay(String text) {
+        return "{\"type\": \"text\", \"lines\": [\"" + text.replace("\"", "\\\"") + "\"]}";
+    }
+
+    public static String hologram(List<String> displays, double x, double y, double z) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < displays.size(); i++) {
+            if (i > 0) lines.append(", ");
+            lines.append("{\"name\": \"").append(displays.get(i)).append("\", \"offset\": [0.0, ").append(-0.3 * i).append(", 0.0]}");
+        }
+        return "{\"displays\": [" + lines + "], \"position\": {\"x\": " + x + ", \"y\": " + y + ", \"z\": " + z + "}}";
+    }
+
+    public static ServerPlayer player(UUID uuid, double x, double y, double z) {
+        ServerPlayer player = OBJENESIS.newInstance(ServerPlayer.class);
+        set(Entity.class, player, "uuid", uuid);
+        set(Entity.class, player, "stringUUID", uuid.toString());
+        set(Entity.class, player, "position", new Vec3(x, y, z));
+        set(Entity.class, player, "level", level());
+        set(Player.class, player, "gameProfile", new GameProfile(uuid, "bench"));
+        return player;
+    }
+
+    public static List<ServerPlayer> players(int count, double spread) {
+        List<ServerPlayer> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double angle = Math.PI * 2 * i / count;
+            players.add(player(new UUID(0x5eedL, i), Math.cos(angle) * spread, 64, Math.sin(angle) * spread));
+        }
+        return players;
+    }
+
+    /**
+     * Installs a server whose player list contains the given players so that handlers resolving
+     * viewers by UUID find them.
+     */
+    public static void installServer(List<ServerPlayer> players) {
+        DedicatedServer server = server();
+        PlayerList playerList = OBJENESIS.newInstance(DedicatedPlayerList.class);
+        Map<UUID, ServerPlayer> byUuid = new HashMap<>();
+        players.forEach(player -> byUuid.put(player.getUUID(), player));
+        set(PlayerList.class, playerList, "players", new ArrayList<>(players));
+        set(PlayerList.class, playerList, "playersByUUID", byUuid);
+        set(MinecraftServer.class, server, "playerList", playerList);
+        set(HoloDisplays.class, null, "SERVER", server);
+    }
+
+    private static synchronized ServerLevel level() {
+        if (level == null) {
+            level = OBJENESIS.newInstance(ServerLevel.class);
+            set(ServerLevel.class, level, "server", server());
+        }
+        return level;
+    }
+
+    private static synchronized DedicatedServer server() {
+        if (server == null) server = OBJENESIS.newInstance(DedicatedServer.class);
+        return server;
+    }
+
+    private static void set(Class<?> owner, Object target, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.furq.holodisplays.benchmark;
+
+import dev.furq.holodisplays.data.display.TextDisplay;
+import dev.furq.holodisplays.data.display.TextTemplate;
+import dev.furq.holodisplays.handlers.TickHandler;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving a text line by parsing its source on every refresh, as processText used to,
+ * with resolving the line's compiled template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProcessTextBenchmark {
+    @Param({"0", "1", "10"})
+    public int placeholders;
+
+    private String text;
+    private TextDisplay display;
+    private ServerPlayer player;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        BenchmarkSupport.registerPlaceholders(placeholders);
+
+        StringBuilder source = new StringBuilder("<gradient:#ff5555:#5555ff>Server status</gradient> <gray>|</gray>");
+        for (int i = 0; i < placeholders; i++) source.append(" <yellow>%bench:p").append(i).append("%</yellow>");
+        text = source.toString();
+
+        TextDisplay.Builder builder = new TextDisplay.Builder();
+        builder.setLines(List.of(text));
+        display = builder.build();
+        player = BenchmarkSupport.player(UUID.randomUUID(), 0, 64, 0);
+    }
+
+    @Benchmark
+    public Component parseEveryTime() {
+        return TextTemplate.Companion.resolve(TextTemplate.Companion.parse(text), player);
+    }
+
+    @Benchmark
+    public Component compiledTemplate() {
+        return TickHandler.INSTANCE.processText(display, player);
+    }
+}
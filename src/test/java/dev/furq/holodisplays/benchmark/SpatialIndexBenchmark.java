@@ -0,0 +1,85 @@
+package dev.furq.holodisplays.benchmark;
+
+import dev.furq.holodisplays.handlers.SpatialIndex;
+import kotlin.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the holograms in range of every online player once, as a visibility pass does, using the
+ * spatial index and using a scan over every hologram.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpatialIndexBenchmark {
+    private static final String WORLD = "minecraft:overworld";
+    private static final double AREA = 4000;
+    private static final double RANGE = 48;
+
+    @Param({"10000"})
+    public int holograms;
+
+    @Param({"200"})
+    public int players;
+
+    private final SpatialIndex index = new SpatialIndex();
+    private String[] names;
+    private double[] hologramPositions;
+    private double[] playerPositions;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        names = new String[holograms];
+        hologramPositions = new double[holograms * 3];
+        for (int i = 0; i < holograms; i++) {
+            names[i] = "hologram_" + i;
+            double x = random.nextDouble(-AREA / 2, AREA / 2);
+            double y = random.nextDouble(40, 120);
+            double z = random.nextDouble(-AREA / 2, AREA / 2);
+            hologramPositions[i * 3] = x;
+            hologramPositions[i * 3 + 1] = y;
+            hologramPositions[i * 3 + 2] = z;
+            index.put(names[i], WORLD, x, y, z, RANGE);
+        }
+
+        playerPositions = new double[players * 3];
+        for (int i = 0; i < players; i++) {
+            playerPositions[i * 3] = random.nextDouble(-AREA / 2, AREA / 2);
+            playerPositions[i * 3 + 1] = random.nextDouble(40, 120);
+            playerPositions[i * 3 + 2] = random.nextDouble(-AREA / 2, AREA / 2);
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        double rangeSq = RANGE * RANGE;
+        for (int p = 0; p < players; p++) {
+            double x = playerPositions[p * 3];
+            double y = playerPositions[p * 3 + 1];
+            double z = playerPositions[p * 3 + 2];
+            for (int h = 0; h < holograms; h++) {
+                double dx = hologramPositions[h * 3] - x;
+                double dy = hologramPositions[h * 3 + 1] - y;
+                double dz = hologramPositions[h * 3 + 2] - z;
+                if (dx * dx + dy * dy + dz * dz <= rangeSq) blackhole.consume(names[h]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void spatialIndex(Blackhole blackhole) {
+        for (int p = 0; p < players; p++) {
+            index.forEachContaining(WORLD, playerPositions[p * 3], playerPositions[p * 3 + 1], playerPositions[p * 3 + 2], name -> {
+                blackhole.consume(name);
+                return Unit.INSTANCE;
+            });
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dev.furq.holodisplays.benchmark;
+
+import dev.furq.holodisplays.config.DisplayConfig;
+import dev.furq.holodisplays.config.HologramConfig;
+import dev.furq.holodisplays.data.DisplayData;
+import dev.furq.holodisplays.data.HologramData;
+import dev.furq.holodisplays.handlers.PacketBatcher;
+import dev.furq.holodisplays.handlers.PacketHandler;
+import kotlin.Unit;
+import net.minecraft.server.level.ServerPlayer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawns a 20-line hologram for 200 players, as happens when a crowd comes into range after a
+ * restart. {@code perViewer} drops the hologram's spawn templates before every player so each
+ * one builds its spawn data and shared metadata from scratch, as every spawn did before the
+ * templates were cached; {@code sharedTemplate} reuses them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpawnBenchmark {
+    private static final String HOLOGRAM = "bench_spawn";
+
+    @Param({"20"})
+    public int lines;
+
+    @Param({"200"})
+    public int viewers;
+
+    private HologramData hologram;
+    private DisplayData[] displays;
+    private List<ServerPlayer> players;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        Path configDir = BenchmarkSupport.configDir();
+        List<String> names = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            String name = "bench_spawn_line_" + i;
+            String json = i % 5 == 4
+                    ? "{\"type\": \"item\", \"id\": \"minecraft:diamond\"}"
+                    : BenchmarkSupport.textDisplay("<gradient:#ffaa00:#ff55ff>Welcome to the hub</gradient> <gray>line " + i);
+            BenchmarkSupport.writeConfig(configDir, "displays", name, json);
+            names.add(name);
+        }
+        BenchmarkSupport.writeConfig(configDir, "holograms", HOLOGRAM, BenchmarkSupport.hologram(names, 0, 64, 0));
+        BenchmarkSupport.loadConfigs(configDir);
+
+        hologram = HologramConfig.INSTANCE.getHologram(HOLOGRAM);
+        displays = new DisplayData[lines];
+        for (int i = 0; i < lines; i++) displays[i] = DisplayConfig.INSTANCE.getDisplay(hologram.getDisplays().get(i).getName());
+        players = BenchmarkSupport.players(viewers, 8);
+    }
+
+    @Benchmark
+    public void perViewer(Blackhole blackhole) {
+        spawnForAll(blackhole, true);
+    }
+
+    @Benchmark
+    public void sharedTemplate(Blackhole blackhole) {
+        spawnForAll(blackhole, false);
+    }
+
+    private void spawnForAll(Blackhole blackhole, boolean rebuild) {
+        for (ServerPlayer player : players) {
+            if (rebuild) PacketHandler.INSTANCE.forgetHologram(HOLOGRAM);
+            for (int i = 0; i < lines; i++) {
+                PacketHandler.INSTANCE.spawnDisplayEntity(player, HOLOGRAM, hologram.getDisplays().get(i), displays[i], i, hologram, packet -> {
+                    blackhole.consume(packet);
+                    return Unit.INSTANCE;
+                });
+            }
+        }
+        for (ServerPlayer player : players) PacketHandler.INSTANCE.destroyDisplayEntity(player, HOLOGRAM);
+        PacketBatcher.INSTANCE.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package dev.furq.holodisplays.data
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class HologramDataTest {
+    private fun hologram(vararg bands: HologramData.LodBand) = HologramData(
+        displays = emptyList(),
+        position = HologramData.Position(x = 0.0f, y = 0.0f, z = 0.0f),
+        lodBands = bands.toList(),
+    )
+
+    @Test
+    fun `holograms without bands update every viewer at full rate`() {
+        assertEquals(1, hologram().updateDivisor(1_000_000.0))
+    }
+
+    @Test
+    fun `the farthest reached band sets the divisor`() {
+        val hologram = hologram(HologramData.LodBand(8.0, 4), HologramData.LodBand(24.0, 8))
+
+        assertEquals(1, hologram.updateDivisor(7.9 * 7.9))
+        assertEquals(4, hologram.updateDivisor(8.0 * 8.0))
+        assertEquals(4, hologram.updateDivisor(20.0 * 20.0))
+        assertEquals(8, hologram.updateDivisor(24.0 * 24.0))
+    }
+
+    @Test
+    fun `band order does not matter`() {
+        val hologram = hologram(HologramData.LodBand(24.0, 8), HologramData.LodBand(8.0, 4))
+
+        assertEquals(4, hologram.updateDivisor(20.0 * 20.0))
+        assertEquals(8, hologram.updateDivisor(30.0 * 30.0))
+    }
+}
@@ -0,0 +1,93 @@
+package dev.furq.holodisplays.data.display
+
+import dev.furq.holodisplays.benchmark.BenchmarkSupport
+import dev.furq.holodisplays.config.AnimationConfig
+import dev.furq.holodisplays.handlers.FrameTable
+import net.minecraft.server.level.ServerPlayer
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import java.nio.file.Path
+import java.util.*
+
+class TextTemplateHeapTest {
+    private lateinit var player: ServerPlayer
+
+    @BeforeEach
+    fun setup() {
+        BenchmarkSupport.bootstrap()
+        val configDir = BenchmarkSupport.configDir()
+        animation(configDir, "spinner", frames = 12, interval = 1, prerender = true)
+        animation(configDir, "wave", frames = 7, interval = 3)
+        animation(configDir, "pulse", frames = 5, interval = 2)
+        animation(configDir, "wide_a", frames = 16, interval = 1)
+        animation(configDir, "wide_b", frames = 16, interval = 1)
+        animation(configDir, "wide_c", frames = 8, interval = 1)
+        BenchmarkSupport.loadConfigs(configDir)
+        player = BenchmarkSupport.player(UUID.randomUUID(), 0.0, 64.0, 0.0)
+    }
+
+    @Test
+    fun `prerendered frames are rendered once per frame`() {
+        val template = TextTemplate.compile("<animation:spinner>")
+        val frames = collect(template, 0, CYCLE_TICKS * 10)
+
+        val table = AnimationConfig.getFrameTable("spinner")!!
+        assertEquals(table.frameCount, frames.size)
+        assertEquals(table.frameCount, table.renderedFrames)
+    }
+
+    @Test
+    fun `combined animations reuse one frame per combination`() {
+        val template = TextTemplate.compile("<gold><animation:wave> <animation:pulse> <gray>Online")
+        val firstCycle = collect(template, 0, CYCLE_TICKS)
+        val laterCycles = collect(template, CYCLE_TICKS, CYCLE_TICKS * 10)
+
+        assertTrue(firstCycle.size <= 7 * 5) { "Cached ${firstCycle.size} frames for 35 combinations" }
+        assertEquals(firstCycle, laterCycles)
+    }
+
+    @Test
+    fun `uncached frame combinations are not retained`() {
+        val template = TextTemplate.compile("<animation:wide_a> <animation:wide_b> <animation:wide_c>")
+        for (tick in 0 until CYCLE_TICKS) {
+            assertNull(template.frame(tick, player))
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    fun `a week of frame lookups never renders a frame twice`() {
+        val templates = listOf(
+            TextTemplate.compile("<animation:spinner>"),
+            TextTemplate.compile("<gold><animation:wave> <animation:pulse> <gray>Online"),
+        )
+        templates.forEach { template ->
+            val firstCycle = collect(template, 0, CYCLE_TICKS)
+            assertEquals(firstCycle, collect(template, CYCLE_TICKS, WEEK_TICKS))
+        }
+        val table = AnimationConfig.getFrameTable("spinner")!!
+        assertEquals(table.frameCount, table.renderedFrames)
+    }
+
+    private fun collect(template: TextTemplate, from: Int, to: Int): Set<FrameTable.Frame> {
+        val frames = Collections.newSetFromMap(IdentityHashMap<FrameTable.Frame, Boolean>())
+        for (tick in from until to) {
+            frames.add(template.frame(tick, player)!!)
+        }
+        return frames
+    }
+
+    private fun animation(configDir: Path, name: String, frames: Int, interval: Int, prerender: Boolean = false) {
+        val frameList = (0 until frames).joinToString(", ") { "\"<color:#${"%06x".format(it * 0x1f3d5b and 0xffffff)}>frame $it\"" }
+        BenchmarkSupport.writeConfig(configDir, "animations", name, "{\"frames\": [$frameList], \"interval\": $interval, \"prerender\": $prerender}")
+    }
+
+    companion object {
+        private const val WEEK_TICKS = 7 * 24 * 60 * 60 * 20
+        private const val CYCLE_TICKS = 12 * 7 * 3 * 5 * 2
+    }
+}
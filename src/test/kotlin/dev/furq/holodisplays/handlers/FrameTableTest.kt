@@ -0,0 +1,51 @@
+package dev.furq.holodisplays.handlers
+
+import dev.furq.holodisplays.benchmark.BenchmarkSupport
+import dev.furq.holodisplays.data.display.TextTemplate
+import net.minecraft.server.level.ServerPlayer
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.util.*
+
+class FrameTableTest {
+    private lateinit var player: ServerPlayer
+    private lateinit var table: FrameTable
+
+    @BeforeEach
+    fun setup() {
+        BenchmarkSupport.bootstrap()
+        player = BenchmarkSupport.player(UUID.randomUUID(), 0.0, 64.0, 0.0)
+        table = FrameTable(Array(4) { TextTemplate.parse("<gold>frame $it") })
+    }
+
+    @Test
+    fun `frames are rendered once and then reused`() {
+        val first = table.frame(1, player)
+        assertSame(first, table.frame(1, player))
+        assertNotSame(first, table.frame(2, player))
+        assertEquals(2, table.renderedFrames)
+        assertEquals("frame 1", first.component.string)
+    }
+
+    @Test
+    fun `the memory estimate only grows when a frame is rendered`() {
+        assertEquals(0L, table.estimatedBytes)
+        table.frame(0, player)
+        val rendered = table.estimatedBytes
+        assertTrue(rendered > 0)
+
+        repeat(10) { table.frame(0, player) }
+        assertEquals(rendered, table.estimatedBytes)
+    }
+
+    @Test
+    fun `frame sizes match the encoded metadata`() {
+        val frame = table.frame(3, player)
+        assertEquals(PacketHandler.measureTextSize(frame.entries), frame.size)
+        assertEquals(4, table.frameCount)
+    }
+}
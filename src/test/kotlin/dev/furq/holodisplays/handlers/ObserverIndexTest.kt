@@ -0,0 +1,85 @@
+package dev.furq.holodisplays.handlers
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.*
+
+class ObserverIndexTest {
+    private val index = ObserverIndex()
+    private val alice = UUID(0L, 1L)
+    private val bob = UUID(0L, 2L)
+
+    @Test
+    fun `viewers are indexed in both directions`() {
+        index.track("spawn")
+        assertTrue(index.add(alice, "spawn"))
+        assertFalse(index.add(alice, "spawn"))
+        index.add(bob, "spawn")
+        index.add(alice, "shop")
+
+        assertTrue(index.contains(alice, "spawn"))
+        assertEquals(2, index.viewerCount("spawn"))
+        assertEquals(setOf(alice, bob), index.viewers("spawn").toSet())
+        assertEquals(setOf("spawn", "shop"), index.viewedBy(alice).toSet())
+        assertEquals(setOf("spawn"), mutableSetOf<String>().also { viewed -> index.forEachViewed(bob) { viewed.add(it) } })
+    }
+
+    @Test
+    fun `removing a viewer updates both directions`() {
+        index.add(alice, "spawn")
+        index.add(bob, "spawn")
+
+        assertTrue(index.remove(alice, "spawn"))
+        assertFalse(index.remove(alice, "spawn"))
+        assertFalse(index.contains(alice, "spawn"))
+        assertEquals(listOf(bob), index.viewers("spawn"))
+        assertEquals(emptyList<String>(), index.viewedBy(alice))
+    }
+
+    @Test
+    fun `untracking a hologram forgets its viewers`() {
+        index.add(alice, "spawn")
+        index.add(alice, "shop")
+        index.untrack("spawn")
+
+        assertEquals(0, index.viewerCount("spawn"))
+        assertEquals(listOf("shop"), index.viewedBy(alice))
+        assertFalse(index.contains(alice, "spawn"))
+    }
+
+    @Test
+    fun `removing a player forgets what they viewed`() {
+        index.add(alice, "spawn")
+        index.add(bob, "spawn")
+        index.removePlayer(alice)
+
+        assertEquals(listOf(bob), index.viewers("spawn"))
+        assertEquals(emptyList<String>(), index.viewedBy(alice))
+    }
+
+    @Test
+    fun `released handles are not confused with their next owner`() {
+        index.add(alice, "old")
+        index.untrack("old")
+        index.removePlayer(alice)
+        index.add(bob, "new")
+
+        assertFalse(index.contains(alice, "new"))
+        assertFalse(index.contains(bob, "old"))
+        assertEquals(listOf(bob), index.viewers("new"))
+        assertEquals(emptyList<UUID>(), index.viewers("old"))
+    }
+
+    @Test
+    fun `first viewer skips viewers that cannot be resolved`() {
+        index.add(alice, "spawn")
+        index.add(bob, "spawn")
+
+        assertEquals(bob, index.firstViewer("spawn") { it.takeIf { uuid -> uuid == bob } })
+        assertNull(index.firstViewer("spawn") { null })
+        assertNull(index.firstViewer("missing") { it })
+    }
+}
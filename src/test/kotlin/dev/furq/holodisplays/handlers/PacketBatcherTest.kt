@@ -0,0 +1,108 @@
+package dev.furq.holodisplays.handlers
+
+import dev.furq.holodisplays.benchmark.BenchmarkSupport
+import net.minecraft.network.protocol.Packet
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket
+import net.minecraft.server.level.ServerPlayer
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.util.*
+
+class PacketBatcherTest {
+    private lateinit var player: ServerPlayer
+    private lateinit var other: ServerPlayer
+
+    @BeforeEach
+    fun setup() {
+        BenchmarkSupport.bootstrap()
+        PacketBatcher.clear()
+        player = BenchmarkSupport.player(UUID.randomUUID(), 0.0, 64.0, 0.0)
+        other = BenchmarkSupport.player(UUID.randomUUID(), 0.0, 64.0, 0.0)
+    }
+
+    @Test
+    fun `updates to the same entity keep only the latest`() {
+        PacketBatcher.sendUpdate(player, update(-1), 10)
+        val latest = update(-1)
+        PacketBatcher.sendUpdate(player, latest, 10)
+        PacketBatcher.sendUpdate(player, update(-2), 10)
+
+        assertEquals(2, PacketBatcher.getDeferredUpdateCount())
+        assertSame(latest, deferred(player)[-1])
+    }
+
+    @Test
+    fun `removing an entity drops its pending update`() {
+        PacketBatcher.sendUpdate(player, update(-1), 10)
+        val kept = update(-2)
+        PacketBatcher.sendUpdate(player, kept, 10)
+        val remove = ClientboundRemoveEntitiesPacket(-1, -3)
+        PacketBatcher.send(player, remove)
+
+        assertEquals(listOf(-2), deferred(player).keys.toList())
+        assertSame(kept, deferred(player)[-2])
+        assertEquals(listOf<Packet<*>>(remove), queued(player))
+    }
+
+    @Test
+    fun `a priority update is queued after the pending update it supersedes`() {
+        val pending = update(-1)
+        PacketBatcher.sendUpdate(player, pending, 10)
+        val priority = update(-1)
+        PacketBatcher.send(player, priority)
+
+        assertEquals(0, PacketBatcher.getDeferredUpdateCount())
+        assertEquals(2, queued(player).size)
+        assertSame(pending, queued(player)[0])
+        assertSame(priority, queued(player)[1])
+    }
+
+    @Test
+    fun `an update after a remove is not dropped`() {
+        val remove = ClientboundRemoveEntitiesPacket(-1)
+        PacketBatcher.send(player, remove)
+        val update = update(-1)
+        PacketBatcher.sendUpdate(player, update, 10)
+
+        assertEquals(listOf<Packet<*>>(remove), queued(player))
+        assertSame(update, deferred(player)[-1])
+    }
+
+    @Test
+    fun `players are batched separately`() {
+        PacketBatcher.sendUpdate(player, update(-1), 10)
+        PacketBatcher.sendUpdate(other, update(-1), 10)
+        PacketBatcher.send(other, ClientboundRemoveEntitiesPacket(-1))
+
+        assertEquals(1, PacketBatcher.getDeferredUpdateCount())
+        assertEquals(listOf(-1), deferred(player).keys.toList())
+
+        PacketBatcher.discard(player)
+        assertEquals(0, PacketBatcher.getDeferredUpdateCount())
+        assertEquals(1, queued(other).size)
+    }
+
+    private fun update(entityId: Int) = ClientboundSetEntityDataPacket(entityId, emptyList())
+
+    @Suppress("UNCHECKED_CAST")
+    private fun outbox(player: ServerPlayer): Any {
+        val pending = field(PacketBatcher::class.java, "pending").get(PacketBatcher) as Map<ServerPlayer, Any>
+        return pending.getValue(player)
+    }
+
+    private fun queued(player: ServerPlayer): List<*> {
+        val outbox = outbox(player)
+        return field(outbox.javaClass, "packets").get(outbox) as List<*>
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun deferred(player: ServerPlayer): Map<Int, ClientboundSetEntityDataPacket> {
+        val outbox = outbox(player)
+        return field(outbox.javaClass, "updates").get(outbox) as Map<Int, ClientboundSetEntityDataPacket>
+    }
+
+    private fun field(owner: Class<*>, name: String) = owner.getDeclaredField(name).apply { isAccessible = true }
+}
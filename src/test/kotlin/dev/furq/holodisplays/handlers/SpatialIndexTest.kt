@@ -0,0 +1,73 @@
+package dev.furq.holodisplays.handlers
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class SpatialIndexTest {
+    private val index = SpatialIndex()
+
+    @Test
+    fun `holograms are found within their view range`() {
+        index.put("spawn", OVERWORLD, 0.0, 64.0, 0.0, 48.0)
+
+        assertEquals(setOf("spawn"), containing(OVERWORLD, 30.0, 64.0, 30.0))
+        assertEquals(emptySet<String>(), containing(OVERWORLD, 40.0, 64.0, 40.0))
+        assertEquals(emptySet<String>(), containing(OVERWORLD, 0.0, 130.0, 0.0))
+        assertEquals(emptySet<String>(), containing(NETHER, 0.0, 64.0, 0.0))
+    }
+
+    @Test
+    fun `ranges spanning cell borders are found from every cell`() {
+        index.put("border", OVERWORLD, -1.0, 64.0, -1.0, 8.0)
+
+        assertEquals(setOf("border"), containing(OVERWORLD, -6.0, 64.0, -6.0))
+        assertEquals(setOf("border"), containing(OVERWORLD, 4.0, 64.0, 4.0))
+        assertEquals(setOf("border"), containing(OVERWORLD, -6.0, 64.0, 4.0))
+    }
+
+    @Test
+    fun `moving a hologram removes it from its old cells`() {
+        index.put("moving", OVERWORLD, 0.0, 64.0, 0.0, 16.0)
+        index.put("moving", OVERWORLD, 500.0, 64.0, 500.0, 16.0)
+
+        assertEquals(1, index.size)
+        assertEquals(emptySet<String>(), containing(OVERWORLD, 0.0, 64.0, 0.0))
+        assertEquals(setOf("moving"), containing(OVERWORLD, 500.0, 64.0, 500.0))
+        assertFalse(index.covers("moving", OVERWORLD, 0.0, 0.0))
+        assertTrue(index.covers("moving", OVERWORLD, 510.0, 490.0))
+    }
+
+    @Test
+    fun `matches compares the indexed position and range`() {
+        index.put("spawn", OVERWORLD, 1.0, 2.0, 3.0, 16.0)
+
+        assertTrue(index.matches("spawn", OVERWORLD, 1.0, 2.0, 3.0, 16.0))
+        assertFalse(index.matches("spawn", OVERWORLD, 1.0, 2.0, 3.0, 24.0))
+        assertFalse(index.matches("spawn", NETHER, 1.0, 2.0, 3.0, 16.0))
+        assertFalse(index.matches("other", OVERWORLD, 1.0, 2.0, 3.0, 16.0))
+    }
+
+    @Test
+    fun `removed holograms are no longer found`() {
+        index.put("a", OVERWORLD, 0.0, 64.0, 0.0, 16.0)
+        index.put("b", OVERWORLD, 0.0, 64.0, 0.0, 16.0)
+        index.remove("a")
+
+        assertEquals(setOf("b"), containing(OVERWORLD, 0.0, 64.0, 0.0))
+        assertFalse(index.covers("a", OVERWORLD, 0.0, 0.0))
+
+        index.clear()
+        assertEquals(0, index.size)
+        assertEquals(emptySet<String>(), containing(OVERWORLD, 0.0, 64.0, 0.0))
+    }
+
+    private fun containing(world: String, x: Double, y: Double, z: Double): Set<String> =
+        mutableSetOf<String>().also { found -> index.forEachContaining(world, x, y, z) { found.add(it) } }
+
+    companion object {
+        private const val OVERWORLD = "minecraft:overworld"
+        private const val NETHER = "minecraft:the_nether"
+    }
+}
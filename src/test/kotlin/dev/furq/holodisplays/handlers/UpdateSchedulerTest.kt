@@ -0,0 +1,94 @@
+package dev.furq.holodisplays.handlers
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class UpdateSchedulerTest {
+    private val scheduler = UpdateScheduler(size = 8)
+
+    @Test
+    fun `entries fire on their due tick`() {
+        scheduler.schedule("a", 3)
+        scheduler.schedule("b", 5)
+
+        assertEquals(listOf(3 to "a", 5 to "b"), run(0, 20))
+    }
+
+    @Test
+    fun `entries due after a full revolution wait for their tick`() {
+        scheduler.schedule("near", 3)
+        scheduler.schedule("far", 19)
+
+        assertEquals(listOf(3 to "near", 19 to "far"), run(0, 30))
+    }
+
+    @Test
+    fun `overdue entries fire on the next visit to their bucket`() {
+        scheduler.schedule("late", 2)
+
+        assertEquals(listOf(10 to "late"), run(5, 20))
+    }
+
+    @Test
+    fun `cancelled entries never fire`() {
+        scheduler.schedule("a", 4)
+        scheduler.schedule("b", 4)
+        scheduler.cancel("a")
+
+        assertEquals(listOf(4 to "b"), run(0, 20))
+    }
+
+    @Test
+    fun `rescheduling replaces the earlier entry`() {
+        scheduler.schedule("a", 2)
+        scheduler.schedule("a", 6)
+        scheduler.schedule("b", 3)
+        scheduler.schedule("b", 11)
+
+        assertEquals(listOf(6 to "a", 11 to "b"), run(0, 30))
+    }
+
+    @Test
+    fun `entries rescheduled from the action fire on a later revolution`() {
+        scheduler.schedule("a", 1)
+        val fired = mutableListOf<Int>()
+        for (tick in 0 until 30) {
+            scheduler.poll(tick) { name ->
+                fired.add(tick)
+                scheduler.schedule(name, tick + 8)
+            }
+        }
+
+        assertEquals(listOf(1, 9, 17, 25), fired)
+    }
+
+    @Test
+    fun `entries fire across integer overflow of the tick counter`() {
+        val last = Int.MAX_VALUE
+        scheduler.schedule("before", last)
+        scheduler.schedule("after", last + 3)
+        scheduler.schedule("far", last + 11)
+
+        assertEquals(listOf(last to "before", last + 3 to "after", last + 11 to "far"), run(last - 4, last + 16))
+    }
+
+    @Test
+    fun `clear drops every entry`() {
+        scheduler.schedule("a", 1)
+        scheduler.schedule("b", 12)
+        scheduler.clear()
+
+        assertEquals(emptyList<Pair<Int, String>>(), run(0, 20))
+    }
+
+    private fun run(from: Int, to: Int): List<Pair<Int, String>> {
+        val fired = mutableListOf<Pair<Int, String>>()
+        var tick = from
+        while (tick - to < 0) {
+            val current = tick
+            scheduler.poll(current) { fired.add(current to it) }
+            tick++
+        }
+        return fired
+    }
+}
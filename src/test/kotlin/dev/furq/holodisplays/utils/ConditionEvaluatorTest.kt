@@ -0,0 +1,73 @@
+package dev.furq.holodisplays.utils
+
+import dev.furq.holodisplays.benchmark.BenchmarkSupport
+import net.minecraft.server.level.ServerPlayer
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertInstanceOf
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.util.*
+
+class ConditionEvaluatorTest {
+    private lateinit var player: ServerPlayer
+
+    @BeforeEach
+    fun setup() {
+        BenchmarkSupport.bootstrap()
+        ConditionEvaluator.clearCache()
+        player = BenchmarkSupport.player(UUID.randomUUID(), 0.0, 64.0, 0.0)
+    }
+
+    @Test
+    fun `and binds tighter than or`() {
+        assertInstanceOf(ConditionEvaluator.Condition.Or::class.java, compile("a = b && a = a || a = a"))
+        assertTrue(test("a = b && a = a || a = a"))
+        assertTrue(test("a = a || a = b && a = b"))
+        assertFalse(test("a = b || a = a && a = b"))
+    }
+
+    @Test
+    fun `parentheses group sub-expressions`() {
+        assertInstanceOf(ConditionEvaluator.Condition.And::class.java, compile("(a = a || a = b) && a = b"))
+        assertFalse(test("(a = a || a = b) && a = b"))
+        assertTrue(test("a = b || (a = a && (b = b || a = b))"))
+        assertTrue(test("((a = a))"))
+    }
+
+    @Test
+    fun `operators inside values are part of the value`() {
+        assertInstanceOf(ConditionEvaluator.Condition.Comparison::class.java, compile("Bob (AFK) = Bob (AFK)"))
+        assertTrue(test("Bob (AFK) = Bob (AFK)"))
+        assertTrue(test("(Bob (AFK) = Bob (AFK)) && a = a"))
+        assertInstanceOf(ConditionEvaluator.Condition.Comparison::class.java, compile("[VIP||MVP] contains VIP||MVP"))
+        assertTrue(test("[VIP||MVP] contains VIP||MVP"))
+        assertTrue(test("rock&&roll startsWith rock&&"))
+    }
+
+    @Test
+    fun `unbalanced or incomplete expressions do not compile`() {
+        assertNull(ConditionEvaluator.compile("(a = a && b = b"))
+        assertNull(ConditionEvaluator.compile("((a = a) || b = b"))
+        assertNull(ConditionEvaluator.compile("a = a && "))
+        assertNull(ConditionEvaluator.compile("no operator here"))
+        assertFalse(ConditionEvaluator.isValid("(a = a"))
+    }
+
+    @Test
+    fun `expressions that do not compile fall back to a single comparison`() {
+        assertTrue(ConditionEvaluator.evaluate("(a contains a", player))
+        assertFalse(ConditionEvaluator.evaluate("(a = a", player))
+    }
+
+    @Test
+    fun `conditions without a comparison always pass`() {
+        assertTrue(ConditionEvaluator.evaluate("no operator here", player))
+        assertTrue(ConditionEvaluator.evaluate(null, player))
+    }
+
+    private fun compile(condition: String): ConditionEvaluator.Condition = ConditionEvaluator.compile(condition)!!
+
+    private fun test(condition: String): Boolean = compile(condition).evaluate(player)
+}